@@ -0,0 +1,48 @@
+package com.axelfrache.signalbroker.config;
+
+import com.axelfrache.signalbroker.config.properties.LabelingProperties;
+import com.axelfrache.signalbroker.config.properties.OllamaProperties;
+import com.axelfrache.signalbroker.service.ClassifierClient;
+import com.axelfrache.signalbroker.service.llm.BatchingClassifierClient;
+import com.axelfrache.signalbroker.service.llm.CachingClassifierClient;
+import com.axelfrache.signalbroker.service.llm.OllamaClassifierClient;
+import com.axelfrache.signalbroker.service.llm.RuleBasedClassifierClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+@RequiredArgsConstructor
+public class ClassifierConfig {
+
+    private final LabelingProperties labelingProperties;
+    private final OllamaProperties ollamaProperties;
+
+    @Bean
+    @Primary
+    public ClassifierClient classifierClient(OllamaClassifierClient ollamaClassifierClient,
+            MeterRegistry meterRegistry) {
+        ClassifierClient client = ollamaClassifierClient;
+
+        var batch = labelingProperties.batch();
+        if (batch.enabled()) {
+            client = new BatchingClassifierClient(ollamaClassifierClient, batch.size(), batch.maxWaitMs(),
+                    meterRegistry);
+        }
+
+        var cache = labelingProperties.cache();
+        if (cache.enabled()) {
+            client = new CachingClassifierClient(client, ollamaProperties.model().classifier(),
+                    cache.capacity(), cache.ttlMs(), meterRegistry);
+        }
+
+        var rules = labelingProperties.rules();
+        if (rules.enabled()) {
+            client = new RuleBasedClassifierClient(client, rules.threshold(), meterRegistry);
+        }
+
+        return client;
+    }
+}
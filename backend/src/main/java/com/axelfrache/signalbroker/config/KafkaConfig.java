@@ -1,23 +1,43 @@
 package com.axelfrache.signalbroker.config;
 
+import com.axelfrache.signalbroker.config.properties.DedupeProperties;
 import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import com.axelfrache.signalbroker.config.properties.LabelingProperties;
+import com.axelfrache.signalbroker.model.kafka.DedupeMarker;
+import com.axelfrache.signalbroker.model.kafka.DlqEvent;
 import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.model.kafka.GroupSnapshot;
 import com.axelfrache.signalbroker.model.kafka.RawInboundEvent;
+import com.axelfrache.signalbroker.service.kafka.FormattedTicketAvroSerde;
+import com.axelfrache.signalbroker.service.kafka.LabelRetryConsumer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.KafkaListenerConfigurer;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.DelegatingByTopicSerializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.ExponentialBackOff;
 
 import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
 import org.springframework.kafka.annotation.EnableKafka;
 
@@ -26,15 +46,78 @@ import org.springframework.kafka.annotation.EnableKafka;
 @RequiredArgsConstructor
 public class KafkaConfig {
 
+    private static final long SEND_RETRY_INITIAL_MS = 1_000;
+    private static final long SEND_RETRY_MAX_MS = 60_000;
+
     private final KafkaAppProperties kafkaProperties;
+    private final LabelingProperties labelingProperties;
+
+    @Bean
+    public KafkaAdmin kafkaAdmin() {
+        return new KafkaAdmin(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperties.bootstrapServers()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "grouping.state.enabled", havingValue = "true")
+    public KafkaAdmin.NewTopics groupStateTopics() {
+        return new KafkaAdmin.NewTopics(
+                TopicBuilder.name(kafkaProperties.topics().groupState())
+                        .compact()
+                        .build(),
+                TopicBuilder.name(kafkaProperties.topics().groupIdLeases())
+                        .partitions(1)
+                        .compact()
+                        .build());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "dedupe.enabled", havingValue = "true")
+    public KafkaAdmin.NewTopics dedupeTopics(DedupeProperties dedupeProperties) {
+        return new KafkaAdmin.NewTopics(
+                TopicBuilder.name(kafkaProperties.topics().dedupe())
+                        .config(TopicConfig.CLEANUP_POLICY_CONFIG,
+                                TopicConfig.CLEANUP_POLICY_COMPACT + "," + TopicConfig.CLEANUP_POLICY_DELETE)
+                        .config(TopicConfig.RETENTION_MS_CONFIG, Long.toString(dedupeProperties.windowMs()))
+                        .build());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "labeling.retry.enabled", havingValue = "true")
+    public KafkaAdmin.NewTopics labelRetryTopics() {
+        return new KafkaAdmin.NewTopics(IntStream.rangeClosed(1, labelingProperties.retry().delaysMs().size())
+                .mapToObj(tier -> TopicBuilder.name(kafkaProperties.topics().labelRetry() + "-" + tier).build())
+                .toArray(NewTopic[]::new));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "labeling.retry.enabled", havingValue = "true")
+    public KafkaListenerConfigurer labelRetryListeners(LabelRetryConsumer retryConsumer, ObjectMapper mapper) {
+        var factory = labelRetryKafkaListenerContainerFactory(mapper);
+        return registrar -> {
+            for (var tier = 1; tier <= labelingProperties.retry().delaysMs().size(); tier++) {
+                registrar.registerEndpoint(retryConsumer.endpoint(kafkaProperties.topics().labelRetry(),
+                        kafkaProperties.groups().labelRetry(), tier), factory);
+            }
+        };
+    }
+
+    @Bean
+    public FormattedTicketAvroSerde formattedTicketAvroSerde() {
+        return new FormattedTicketAvroSerde(kafkaProperties.schemaRegistry().url());
+    }
 
     @Bean
     public ProducerFactory<String, Object> producerFactory(ObjectMapper mapper) {
-        var configProps = new HashMap<String, Object>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperties.bootstrapServers());
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        var jsonSerializer = new JsonSerializer<>(mapper);
-        return new DefaultKafkaProducerFactory<>(configProps, new StringSerializer(), jsonSerializer);
+        var configProps = producerProps();
+        Serializer<Object> valueSerializer = new JsonSerializer<>(mapper);
+        if (kafkaProperties.serialization().formatted() == KafkaAppProperties.Serialization.Format.AVRO) {
+            var topics = kafkaProperties.topics();
+            var formattedTopics = Pattern.compile(
+                    Pattern.quote(topics.formatted()) + "|" + Pattern.quote(topics.labelRetry()) + "-\\d+");
+            valueSerializer = new DelegatingByTopicSerializer(
+                    Map.of(formattedTopics, formattedTicketAvroSerde().serializer()), valueSerializer);
+        }
+        return new DefaultKafkaProducerFactory<>(configProps, new StringSerializer(), valueSerializer);
     }
 
     @Bean
@@ -44,9 +127,7 @@ public class KafkaConfig {
 
     @Bean
     public ProducerFactory<String, Object> schemaRegistryProducerFactory() {
-        var configProps = new HashMap<String, Object>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperties.bootstrapServers());
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        var configProps = producerProps();
         configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
                 io.confluent.kafka.serializers.json.KafkaJsonSchemaSerializer.class);
         configProps.put("schema.registry.url", kafkaProperties.schemaRegistry().url());
@@ -66,6 +147,7 @@ public class KafkaConfig {
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperties.bootstrapServers());
         props.put(ConsumerConfig.GROUP_ID_CONFIG, kafkaProperties.groups().formatter());
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, kafkaProperties.batch().maxPollRecords());
 
         var jsonDeserializer = new JsonDeserializer<>(RawInboundEvent.class, mapper);
         jsonDeserializer.addTrustedPackages("com.axelfrache.signalbroker.*");
@@ -82,7 +164,11 @@ public class KafkaConfig {
         var factory = new ConcurrentKafkaListenerContainerFactory<String, RawInboundEvent>();
         factory.setConsumerFactory(rawConsumerFactory(mapper));
         factory.setConcurrency(kafkaProperties.concurrency().formatter());
+        factory.setBatchListener(kafkaProperties.batch().formatter());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // A failed send to the formatted topic or the format DLQ leaves nowhere to put the record, so it
+        // is redelivered with back-off until the broker takes it instead of being skipped after 10 tries
+        factory.setCommonErrorHandler(new DefaultErrorHandler(sendRetryBackOff()));
         return factory;
     }
 
@@ -99,7 +185,7 @@ public class KafkaConfig {
         return new DefaultKafkaConsumerFactory<>(
                 props,
                 new StringDeserializer(),
-                jsonDeserializer);
+                formattedTicketAvroSerde().deserializer(jsonDeserializer));
     }
 
     @Bean
@@ -109,6 +195,88 @@ public class KafkaConfig {
         factory.setConsumerFactory(formattedConsumerFactory(mapper));
         factory.setConcurrency(kafkaProperties.concurrency().labeler());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(labelingProperties.mode() != LabelingProperties.Mode.SYNC);
+        factory.getContainerProperties().setPauseImmediate(true);
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, FormattedTicketEvent> labelRetryKafkaListenerContainerFactory(
+            ObjectMapper mapper) {
+        var factory = new ConcurrentKafkaListenerContainerFactory<String, FormattedTicketEvent>();
+        factory.setConsumerFactory(formattedConsumerFactory(mapper));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         return factory;
     }
+
+    @Bean
+    public ConsumerFactory<String, GroupSnapshot> groupStateConsumerFactory(ObjectMapper mapper) {
+        var props = new HashMap<String, Object>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperties.bootstrapServers());
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000);
+
+        var jsonDeserializer = new JsonDeserializer<>(GroupSnapshot.class, mapper);
+        jsonDeserializer.addTrustedPackages("com.axelfrache.signalbroker.*");
+
+        return new DefaultKafkaConsumerFactory<>(
+                props,
+                new StringDeserializer(),
+                jsonDeserializer);
+    }
+
+    @Bean
+    public ConsumerFactory<String, DedupeMarker> dedupeConsumerFactory(ObjectMapper mapper) {
+        var props = new HashMap<String, Object>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperties.bootstrapServers());
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000);
+
+        var jsonDeserializer = new JsonDeserializer<>(DedupeMarker.class, mapper);
+        jsonDeserializer.addTrustedPackages("com.axelfrache.signalbroker.*");
+
+        return new DefaultKafkaConsumerFactory<>(
+                props,
+                new StringDeserializer(),
+                jsonDeserializer);
+    }
+
+    @Bean
+    public ConsumerFactory<String, DlqEvent> dlqConsumerFactory(ObjectMapper mapper) {
+        var props = new HashMap<String, Object>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperties.bootstrapServers());
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        var jsonDeserializer = new JsonDeserializer<>(DlqEvent.class, mapper);
+        jsonDeserializer.addTrustedPackages("com.axelfrache.signalbroker.*");
+
+        return new DefaultKafkaConsumerFactory<>(
+                props,
+                new StringDeserializer(),
+                jsonDeserializer);
+    }
+
+    /**
+     * Unbounded back-off for records whose output send failed: there is nowhere else to put them, so they
+     * are retried until the broker takes them rather than committed and lost.
+     */
+    public static ExponentialBackOff sendRetryBackOff() {
+        var backOff = new ExponentialBackOff(SEND_RETRY_INITIAL_MS, 2.0);
+        backOff.setMaxInterval(SEND_RETRY_MAX_MS);
+        return backOff;
+    }
+
+    private Map<String, Object> producerProps() {
+        var producer = kafkaProperties.producer();
+        var props = new HashMap<String, Object>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperties.bootstrapServers());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, producer.idempotence());
+        props.put(ProducerConfig.ACKS_CONFIG, producer.acks());
+        props.put(ProducerConfig.LINGER_MS_CONFIG, producer.lingerMs());
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, producer.batchSize());
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, producer.compression());
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, producer.maxBlockMs());
+        return props;
+    }
 }
@@ -0,0 +1,61 @@
+package com.axelfrache.signalbroker.config;
+
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.errors.LogAndContinueExceptionHandler;
+import org.apache.kafka.streams.errors.StreamsUncaughtExceptionHandler.StreamThreadExceptionResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+import org.springframework.kafka.annotation.KafkaStreamsDefaultConfiguration;
+import org.springframework.kafka.config.KafkaStreamsConfiguration;
+import org.springframework.kafka.config.StreamsBuilderFactoryBeanConfigurer;
+import org.springframework.kafka.streams.KafkaStreamsMicrometerListener;
+
+import java.util.HashMap;
+
+@Slf4j
+@Configuration
+@EnableKafkaStreams
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "kafka.streams.formatter", havingValue = "true")
+public class KafkaStreamsConfig {
+
+    private final KafkaAppProperties kafkaProperties;
+
+    @Bean(name = KafkaStreamsDefaultConfiguration.DEFAULT_STREAMS_CONFIG_BEAN_NAME)
+    public KafkaStreamsConfiguration kafkaStreamsConfiguration() {
+        var streams = kafkaProperties.streams();
+        var producer = kafkaProperties.producer();
+        var props = new HashMap<String, Object>();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, streams.applicationId());
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperties.bootstrapServers());
+        props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, StreamsConfig.EXACTLY_ONCE_V2);
+        props.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, streams.threads());
+        props.put(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG, streams.commitIntervalMs());
+        props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        props.put(StreamsConfig.DESERIALIZATION_EXCEPTION_HANDLER_CLASS_CONFIG,
+                LogAndContinueExceptionHandler.class);
+        props.put(StreamsConfig.producerPrefix(ProducerConfig.LINGER_MS_CONFIG), producer.lingerMs());
+        props.put(StreamsConfig.producerPrefix(ProducerConfig.BATCH_SIZE_CONFIG), producer.batchSize());
+        props.put(StreamsConfig.producerPrefix(ProducerConfig.COMPRESSION_TYPE_CONFIG), producer.compression());
+        return new KafkaStreamsConfiguration(props);
+    }
+
+    @Bean
+    public StreamsBuilderFactoryBeanConfigurer formatterStreamsConfigurer(MeterRegistry meterRegistry) {
+        return factoryBean -> {
+            factoryBean.addListener(new KafkaStreamsMicrometerListener(meterRegistry));
+            factoryBean.setStreamsUncaughtExceptionHandler(e -> {
+                log.error("Formatter stream thread died, replacing it", e);
+                return StreamThreadExceptionResponse.REPLACE_THREAD;
+            });
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package com.axelfrache.signalbroker.config;
 
-import com.axelfrache.signalbroker.config.properties.OllamaProperties;
+import com.axelfrache.signalbroker.service.llm.OllamaConcurrencyLimiter;
+import com.axelfrache.signalbroker.service.llm.OllamaEndpointPool;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -10,10 +11,15 @@ import org.springframework.web.reactive.function.client.WebClient;
 @RequiredArgsConstructor
 public class OllamaConfig {
 
-    private final OllamaProperties ollamaProperties;
+    private final OllamaConcurrencyLimiter ollamaConcurrencyLimiter;
+    private final OllamaEndpointPool ollamaEndpointPool;
 
     @Bean
     public WebClient ollamaWebClient(WebClient.Builder builder) {
-        return builder.baseUrl(ollamaProperties.baseUrl()).build();
+        return builder.clone()
+                .baseUrl(ollamaEndpointPool.primary().toString())
+                .filter(ollamaConcurrencyLimiter)
+                .filter(ollamaEndpointPool)
+                .build();
     }
 }
@@ -0,0 +1,13 @@
+package com.axelfrache.signalbroker.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Validated
+@ConfigurationProperties(prefix = "dedupe")
+public record DedupeProperties(
+        boolean enabled,
+        long windowMs,
+        long sweepIntervalMs,
+        long replayTimeoutMs) {
+}
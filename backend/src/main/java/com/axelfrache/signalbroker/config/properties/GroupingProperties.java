@@ -0,0 +1,56 @@
+package com.axelfrache.signalbroker.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.Map;
+
+@Validated
+@ConfigurationProperties(prefix = "grouping")
+public record GroupingProperties(
+        Shards shards,
+        Embedding embedding,
+        Ann ann,
+        Lsh lsh,
+        State state,
+        Search search,
+        VerdictCache verdictCache) {
+
+    public record Shards(
+            boolean byTicketType,
+            int capacity,
+            Map<String, Integer> capacities,
+            long idleTtlMs,
+            long sweepIntervalMs) {
+    }
+
+    public record Embedding(boolean enabled) {
+    }
+
+    public record Ann(
+            double similarityThreshold,
+            int candidates,
+            int llmConfirmations,
+            int m,
+            int efConstruction,
+            int efSearch) {
+    }
+
+    public record Lsh(boolean enabled, int bands, int rows, int shingleSize) {
+    }
+
+    public record State(boolean enabled, long replayTimeoutMs, int idBlockSize) {
+    }
+
+    public record Search(SearchMode mode, int parallelism, long timeoutMs, int oneShotCandidates) {
+    }
+
+    public record VerdictCache(boolean enabled, int capacity, long ttlMs) {
+    }
+
+    public enum SearchMode {
+        SEQUENTIAL,
+        PARALLEL,
+        ONE_SHOT
+    }
+}
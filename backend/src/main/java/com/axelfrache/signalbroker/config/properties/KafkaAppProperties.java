@@ -10,9 +10,14 @@ public record KafkaAppProperties(
         Groups groups,
         Concurrency concurrency,
         SchemaRegistry schemaRegistry,
-        Topics topics) {
+        Topics topics,
+        Batch batch,
+        Producer producer,
+        Streams streams,
+        Serialization serialization,
+        Autoscaling autoscaling) {
 
-    public record Groups(String formatter, String labeler) {
+    public record Groups(String formatter, String labeler, String labelRetry) {
     }
 
     public record Concurrency(int formatter, int labeler) {
@@ -21,12 +26,50 @@ public record KafkaAppProperties(
     public record SchemaRegistry(String url) {
     }
 
+    public record Batch(boolean formatter, int maxPollRecords, long sendTimeoutMs) {
+    }
+
+    public record Producer(
+            boolean idempotence,
+            String acks,
+            int lingerMs,
+            int batchSize,
+            String compression,
+            int maxInFlightSends,
+            long maxBlockMs) {
+    }
+
+    public record Streams(boolean formatter, String applicationId, int threads, long commitIntervalMs) {
+    }
+
+    public record Autoscaling(
+            boolean enabled,
+            long intervalMs,
+            long cooldownMs,
+            int maxConcurrency,
+            long scaleUpLag,
+            long scaleDownLag,
+            long targetDrainSeconds) {
+    }
+
+    public record Serialization(Format formatted) {
+
+        public enum Format {
+            JSON,
+            AVRO
+        }
+    }
+
     public record Topics(
             ChannelTopics whatsapp,
             ChannelTopics mail,
             String formatted,
             String labeled,
-            String labelDlq) {
+            String labelRetry,
+            String labelDlq,
+            String groupState,
+            String groupIdLeases,
+            String dedupe) {
     }
 
     public record ChannelTopics(String raw, String formatDlq) {
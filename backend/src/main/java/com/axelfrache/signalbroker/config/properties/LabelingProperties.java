@@ -0,0 +1,48 @@
+package com.axelfrache.signalbroker.config.properties;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.List;
+
+@Validated
+@ConfigurationProperties(prefix = "labeling")
+public record LabelingProperties(
+        Mode mode,
+        Ordering ordering,
+        int maxInFlight,
+        int maxQueued,
+        Cache cache,
+        Batch batch,
+        Rules rules,
+        Scheduler scheduler,
+        @Valid Retry retry) {
+
+    public record Cache(boolean enabled, int capacity, long ttlMs) {
+    }
+
+    public record Batch(boolean enabled, int size, long maxWaitMs) {
+    }
+
+    public record Rules(boolean enabled, double threshold) {
+    }
+
+    public record Scheduler(int capacity, long agingMs) {
+    }
+
+    public record Retry(boolean enabled, @NotEmpty List<Long> delaysMs) {
+    }
+
+    public enum Mode {
+        SYNC,
+        ASYNC,
+        PRIORITY
+    }
+
+    public enum Ordering {
+        NONE,
+        CONTACT
+    }
+}
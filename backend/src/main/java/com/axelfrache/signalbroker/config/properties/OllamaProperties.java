@@ -1,14 +1,47 @@
 package com.axelfrache.signalbroker.config.properties;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
+import java.util.List;
+
 @Validated
 @ConfigurationProperties(prefix = "ollama")
 public record OllamaProperties(
         String baseUrl,
-        Model model) {
+        List<String> endpoints,
+        Model model,
+        Pool pool,
+        Limiter limiter,
+        CircuitBreaker circuitBreaker,
+        @Valid Prompt prompt) {
+
+    public record Model(String classifier, String embedding) {
+    }
+
+    public record Pool(int maxFailures, long ejectionMs, long healthCheckIntervalMs, long healthCheckTimeoutMs) {
+    }
+
+    public record Limiter(
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            double backoffRatio,
+            double tolerance,
+            long maxWaitMs,
+            long requestTimeoutMs) {
+    }
+
+    public record CircuitBreaker(int failureThreshold, long openMs) {
+    }
 
-    public record Model(String classifier) {
+    public record Prompt(
+            String keepAlive,
+            @Min(16) int maxBodyTokens,
+            @DecimalMin("0.0") @DecimalMax("1.0") double headRatio) {
     }
 }
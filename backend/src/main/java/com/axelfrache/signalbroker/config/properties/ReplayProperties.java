@@ -0,0 +1,13 @@
+package com.axelfrache.signalbroker.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Validated
+@ConfigurationProperties(prefix = "replay")
+public record ReplayProperties(
+        double defaultRatePerSecond,
+        double maxRatePerSecond,
+        int maxEntries,
+        long pollTimeoutMs) {
+}
@@ -0,0 +1,48 @@
+package com.axelfrache.signalbroker.controller;
+
+import com.axelfrache.signalbroker.dto.DlqReplayJobDto;
+import com.axelfrache.signalbroker.dto.DlqReplayRequest;
+import com.axelfrache.signalbroker.service.DlqReplayService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/dlq/replays")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class DlqReplayController {
+
+    private final DlqReplayService replayService;
+
+    @PostMapping
+    public ResponseEntity<DlqReplayJobDto> startReplay(@Valid @RequestBody DlqReplayRequest request) {
+        return replayService.start(request)
+                .map(job -> ResponseEntity.status(HttpStatus.ACCEPTED).body(job))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    @GetMapping
+    public List<DlqReplayJobDto> listReplays() {
+        return replayService.listJobs();
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<DlqReplayJobDto> getReplay(@PathVariable UUID jobId) {
+        return replayService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<DlqReplayJobDto> cancelReplay(@PathVariable UUID jobId) {
+        return replayService.cancel(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
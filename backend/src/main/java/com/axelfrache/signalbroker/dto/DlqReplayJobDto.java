@@ -0,0 +1,21 @@
+package com.axelfrache.signalbroker.dto;
+
+import com.axelfrache.signalbroker.model.enums.ProcessingStage;
+import com.axelfrache.signalbroker.model.enums.ReplayJobStatus;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record DlqReplayJobDto(
+        UUID jobId,
+        ReplayJobStatus status,
+        ProcessingStage stage,
+        double ratePerSecond,
+        int scanned,
+        int matched,
+        int replayed,
+        int skipped,
+        int failed,
+        Instant startedAt,
+        Instant finishedAt) {
+}
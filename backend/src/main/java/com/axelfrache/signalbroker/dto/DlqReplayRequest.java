@@ -0,0 +1,18 @@
+package com.axelfrache.signalbroker.dto;
+
+import com.axelfrache.signalbroker.model.enums.ProcessingStage;
+import jakarta.validation.constraints.Positive;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public record DlqReplayRequest(
+        ProcessingStage stage,
+        String reason,
+        Instant from,
+        Instant to,
+        List<UUID> eventIds,
+        @Positive(message = "Limit must be positive") Integer limit,
+        @Positive(message = "Rate must be positive") Double ratePerSecond) {
+}
@@ -0,0 +1,7 @@
+package com.axelfrache.signalbroker.exception;
+
+public class OllamaUnavailableException extends OllamaClientException {
+    public OllamaUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.axelfrache.signalbroker.model.enums;
+
+public enum ReplayJobStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
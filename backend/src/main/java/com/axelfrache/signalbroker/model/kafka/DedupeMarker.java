@@ -0,0 +1,10 @@
+package com.axelfrache.signalbroker.model.kafka;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record DedupeMarker(
+        UUID eventId,
+        Instant seenAt,
+        int schemaVersion) {
+}
@@ -1,6 +1,7 @@
 package com.axelfrache.signalbroker.model.kafka;
 
 import com.axelfrache.signalbroker.model.enums.ProcessingStage;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import java.time.Instant;
 import java.util.Map;
@@ -15,7 +16,9 @@ public record DlqEvent(
                 @NotBlank String originalTopic,
                 @NotBlank String reason,
                 String payloadSnippet,
+                JsonNode payload,
                 @NotNull Instant failedAt,
                 Map<String, String> metadata,
+                int attempt,
                 int schemaVersion) {
 }
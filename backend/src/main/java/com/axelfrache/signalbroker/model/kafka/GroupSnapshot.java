@@ -0,0 +1,14 @@
+package com.axelfrache.signalbroker.model.kafka;
+
+import java.time.Instant;
+
+public record GroupSnapshot(
+        long commonId,
+        LabeledTicketEvent representative,
+        byte[] centroid,
+        int[] signature,
+        int size,
+        Instant updatedAt,
+        String ownerId,
+        int schemaVersion) {
+}
@@ -3,7 +3,13 @@ package com.axelfrache.signalbroker.service;
 import com.axelfrache.signalbroker.dto.ClassificationResult;
 import com.axelfrache.signalbroker.exception.OllamaClientException;
 import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 public interface ClassifierClient {
     ClassificationResult classify(FormattedTicketEvent formatted) throws OllamaClientException;
+
+    default Mono<ClassificationResult> classifyAsync(FormattedTicketEvent formatted) {
+        return Mono.fromCallable(() -> classify(formatted)).subscribeOn(Schedulers.boundedElastic());
+    }
 }
@@ -0,0 +1,241 @@
+package com.axelfrache.signalbroker.service;
+
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import com.axelfrache.signalbroker.config.properties.ReplayProperties;
+import com.axelfrache.signalbroker.dto.DlqReplayJobDto;
+import com.axelfrache.signalbroker.dto.DlqReplayRequest;
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.enums.ProcessingStage;
+import com.axelfrache.signalbroker.model.enums.ReplayJobStatus;
+import com.axelfrache.signalbroker.model.kafka.DlqEvent;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.model.kafka.RawInboundEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Re-injects DLQ entries into the stage that rejected them: format failures go back to their raw
+ * topic, label failures to the formatted topic. Entries are read from the DLQ topics up to the end
+ * offsets seen when the job starts and published at a fixed pace, one job at a time.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DlqReplayService {
+
+    private static final int MAX_FINISHED_JOBS = 50;
+
+    private final ConsumerFactory<String, DlqEvent> dlqConsumerFactory;
+    private final EventPublisher eventPublisher;
+    private final KafkaAppProperties kafkaProperties;
+    private final ReplayProperties replayProperties;
+    private final ObjectMapper mapper;
+    private final Map<UUID, ReplayJob> jobs = new LinkedHashMap<>();
+
+    public synchronized Optional<DlqReplayJobDto> start(DlqReplayRequest request) {
+        if (jobs.values().stream().anyMatch(job -> job.status == ReplayJobStatus.RUNNING)) {
+            return Optional.empty();
+        }
+
+        var rate = Math.min(
+                request.ratePerSecond() != null ? request.ratePerSecond() : replayProperties.defaultRatePerSecond(),
+                replayProperties.maxRatePerSecond());
+        var limit = Math.min(
+                request.limit() != null ? request.limit() : replayProperties.maxEntries(),
+                replayProperties.maxEntries());
+        var job = new ReplayJob(UUID.randomUUID(), request, rate, limit);
+
+        jobs.put(job.id, job);
+        while (jobs.size() > MAX_FINISHED_JOBS) {
+            jobs.remove(jobs.keySet().iterator().next());
+        }
+
+        log.info("Starting DLQ replay {} (stage={}, rate={}/s, limit={})", job.id, request.stage(), rate, limit);
+        Thread.ofVirtual().name("dlq-replay-" + job.id).start(() -> run(job));
+        return Optional.of(job.toDto());
+    }
+
+    public synchronized List<DlqReplayJobDto> listJobs() {
+        return jobs.values().stream().map(ReplayJob::toDto).toList().reversed();
+    }
+
+    public synchronized Optional<DlqReplayJobDto> getJob(UUID jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(ReplayJob::toDto);
+    }
+
+    public synchronized Optional<DlqReplayJobDto> cancel(UUID jobId) {
+        var job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.cancelled = true;
+        return Optional.of(job.toDto());
+    }
+
+    private void run(ReplayJob job) {
+        try (var consumer = dlqConsumerFactory.createConsumer()) {
+            var partitions = new ArrayList<TopicPartition>();
+            for (var topic : topics(job.request.stage())) {
+                consumer.partitionsFor(topic)
+                        .forEach(info -> partitions.add(new TopicPartition(info.topic(), info.partition())));
+            }
+            consumer.assign(partitions);
+            var endOffsets = consumer.endOffsets(partitions);
+            seekToStart(consumer, partitions, job.request.from());
+
+            var interval = (long) (1_000_000_000L / job.ratePerSecond);
+            var nextSlot = System.nanoTime();
+            while (!job.cancelled && job.replayed.get() < job.limit && !caughtUp(consumer, endOffsets)) {
+                for (var record : consumer.poll(Duration.ofMillis(replayProperties.pollTimeoutMs()))) {
+                    var end = endOffsets.get(new TopicPartition(record.topic(), record.partition()));
+                    if (job.cancelled || job.replayed.get() >= job.limit || end == null || record.offset() >= end) {
+                        continue;
+                    }
+                    job.scanned.incrementAndGet();
+                    var event = record.value();
+                    if (event == null || !matches(event, job.request)) {
+                        continue;
+                    }
+                    job.matched.incrementAndGet();
+                    if (event.payload() == null || event.payload().isNull()) {
+                        job.skipped.incrementAndGet();
+                        continue;
+                    }
+
+                    var now = System.nanoTime();
+                    if (nextSlot > now) {
+                        LockSupport.parkNanos(nextSlot - now);
+                    }
+                    nextSlot = Math.max(nextSlot, now) + interval;
+                    replay(event, job);
+                }
+            }
+            job.finish(job.cancelled ? ReplayJobStatus.CANCELLED : ReplayJobStatus.COMPLETED);
+        } catch (Exception e) {
+            log.error("DLQ replay {} failed", job.id, e);
+            job.finish(ReplayJobStatus.FAILED);
+        }
+        log.info("DLQ replay {} finished: {}", job.id, job.toDto());
+    }
+
+    private void replay(DlqEvent event, ReplayJob job) {
+        try {
+            if (event.stage() == ProcessingStage.LABEL) {
+                eventPublisher.publishFormatted(mapper.treeToValue(event.payload(), FormattedTicketEvent.class)).join();
+            } else {
+                var raw = mapper.treeToValue(event.payload(), RawInboundEvent.class);
+                if (raw.channelType() == ChannelType.WHATSAPP) {
+                    eventPublisher.publishWhatsappRaw(raw).join();
+                } else {
+                    eventPublisher.publishMailRaw(raw).join();
+                }
+            }
+            job.replayed.incrementAndGet();
+        } catch (Exception e) {
+            log.warn("Failed to replay DLQ event {}: {}", event.eventId(), e.getMessage());
+            job.failed.incrementAndGet();
+        }
+    }
+
+    private List<String> topics(ProcessingStage stage) {
+        var topics = kafkaProperties.topics();
+        if (stage == null) {
+            return List.of(topics.whatsapp().formatDlq(), topics.mail().formatDlq(), topics.labelDlq());
+        }
+        return stage == ProcessingStage.FORMAT
+                ? List.of(topics.whatsapp().formatDlq(), topics.mail().formatDlq())
+                : List.of(topics.labelDlq());
+    }
+
+    private static void seekToStart(Consumer<String, DlqEvent> consumer, List<TopicPartition> partitions,
+            Instant from) {
+        if (from == null) {
+            consumer.seekToBeginning(partitions);
+            return;
+        }
+        var timestamps = new HashMap<TopicPartition, Long>();
+        partitions.forEach(partition -> timestamps.put(partition, from.toEpochMilli()));
+        consumer.offsetsForTimes(timestamps).forEach((partition, offset) -> {
+            if (offset != null) {
+                consumer.seek(partition, offset.offset());
+            } else {
+                consumer.seekToEnd(List.of(partition));
+            }
+        });
+    }
+
+    private static boolean caughtUp(Consumer<String, DlqEvent> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .allMatch(entry -> consumer.position(entry.getKey()) >= entry.getValue());
+    }
+
+    static boolean matches(DlqEvent event, DlqReplayRequest request) {
+        if (request.stage() != null && event.stage() != request.stage()) {
+            return false;
+        }
+        if (request.eventIds() != null && !request.eventIds().isEmpty()
+                && !request.eventIds().contains(event.eventId())) {
+            return false;
+        }
+        if (request.reason() != null && !request.reason().isBlank() && (event.reason() == null
+                || !event.reason().toLowerCase(Locale.ROOT).contains(request.reason().toLowerCase(Locale.ROOT)))) {
+            return false;
+        }
+        if (request.from() != null && event.failedAt() != null && event.failedAt().isBefore(request.from())) {
+            return false;
+        }
+        return request.to() == null || event.failedAt() == null || !event.failedAt().isAfter(request.to());
+    }
+
+    private static class ReplayJob {
+
+        private final UUID id;
+        private final DlqReplayRequest request;
+        private final double ratePerSecond;
+        private final int limit;
+        private final Instant startedAt = Instant.now();
+        private final AtomicInteger scanned = new AtomicInteger();
+        private final AtomicInteger matched = new AtomicInteger();
+        private final AtomicInteger replayed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile ReplayJobStatus status = ReplayJobStatus.RUNNING;
+        private volatile Instant finishedAt;
+        private volatile boolean cancelled;
+
+        ReplayJob(UUID id, DlqReplayRequest request, double ratePerSecond, int limit) {
+            this.id = id;
+            this.request = request;
+            this.ratePerSecond = ratePerSecond;
+            this.limit = limit;
+        }
+
+        void finish(ReplayJobStatus status) {
+            this.finishedAt = Instant.now();
+            this.status = status;
+        }
+
+        DlqReplayJobDto toDto() {
+            return new DlqReplayJobDto(id, status, request.stage(), ratePerSecond, scanned.get(), matched.get(),
+                    replayed.get(), skipped.get(), failed.get(), startedAt, finishedAt);
+        }
+    }
+}
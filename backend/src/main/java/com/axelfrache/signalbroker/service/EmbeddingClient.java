@@ -0,0 +1,7 @@
+package com.axelfrache.signalbroker.service;
+
+import com.axelfrache.signalbroker.exception.OllamaClientException;
+
+public interface EmbeddingClient {
+    float[] embed(String text) throws OllamaClientException;
+}
@@ -5,18 +5,22 @@ import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
 import com.axelfrache.signalbroker.model.kafka.LabeledTicketEvent;
 import com.axelfrache.signalbroker.model.kafka.RawInboundEvent;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface EventPublisher {
-    void publishWhatsappRaw(RawInboundEvent event);
+    CompletableFuture<Void> publishWhatsappRaw(RawInboundEvent event);
+
+    CompletableFuture<Void> publishMailRaw(RawInboundEvent event);
 
-    void publishMailRaw(RawInboundEvent event);
+    CompletableFuture<Void> publishFormatted(FormattedTicketEvent event);
 
-    void publishFormatted(FormattedTicketEvent event);
+    CompletableFuture<Void> publishLabeled(LabeledTicketEvent event);
 
-    void publishLabeled(LabeledTicketEvent event);
+    CompletableFuture<Void> publishWhatsappFormatDlq(DlqEvent event);
 
-    void publishWhatsappFormatDlq(DlqEvent event);
+    CompletableFuture<Void> publishMailFormatDlq(DlqEvent event);
 
-    void publishMailFormatDlq(DlqEvent event);
+    CompletableFuture<Void> publishLabelRetry(FormattedTicketEvent event, int attempt, long delayMs, String reason);
 
-    void publishLabelDlq(DlqEvent event);
+    CompletableFuture<Void> publishLabelDlq(DlqEvent event);
 }
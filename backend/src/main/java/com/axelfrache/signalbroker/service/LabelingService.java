@@ -4,6 +4,10 @@ import com.axelfrache.signalbroker.exception.LabelingException;
 import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
 import com.axelfrache.signalbroker.model.kafka.LabeledTicketEvent;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface LabelingService {
     LabeledTicketEvent label(FormattedTicketEvent formatted) throws LabelingException;
+
+    CompletableFuture<LabeledTicketEvent> labelAsync(FormattedTicketEvent formatted);
 }
@@ -1,84 +1,461 @@
 package com.axelfrache.signalbroker.service;
 
+import com.axelfrache.signalbroker.config.properties.GroupingProperties;
 import com.axelfrache.signalbroker.config.properties.OllamaProperties;
+import com.axelfrache.signalbroker.exception.OllamaUnavailableException;
+import com.axelfrache.signalbroker.model.enums.Category;
+import com.axelfrache.signalbroker.model.enums.TicketType;
 import com.axelfrache.signalbroker.model.kafka.LabeledTicketEvent;
-import lombok.RequiredArgsConstructor;
+import com.axelfrache.signalbroker.service.grouping.CommonIdAllocator;
+import com.axelfrache.signalbroker.service.grouping.GroupShard;
+import com.axelfrache.signalbroker.service.grouping.GroupStateListener;
+import com.axelfrache.signalbroker.service.grouping.GroupStateStore;
+import com.axelfrache.signalbroker.service.grouping.SimilarityVerdictCache;
+import com.axelfrache.signalbroker.service.grouping.TicketFingerprint;
+import com.axelfrache.signalbroker.service.grouping.TicketGroup;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
-public class TicketGroupingService {
+public class TicketGroupingService implements GroupStateListener {
+
+    private static final String UNKNOWN_SHARD = "UNKNOWN";
 
     private final WebClient ollamaWebClient;
     private final OllamaProperties ollamaProperties;
-    private final ConcurrentLinkedDeque<TicketGroup> ticketGroups = new ConcurrentLinkedDeque<>();
-    private final AtomicLong nextCommonId = new AtomicLong(1);
+    private final EmbeddingClient embeddingClient;
+    private final GroupingProperties groupingProperties;
+    private final GroupStateStore groupStateStore;
+    private final CommonIdAllocator commonIdAllocator;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper mapper;
+    private final DistributionSummary lshPruningRatio;
+    private final Counter lshPrunedComparisons;
+    private final Timer assignLatency;
+    private final Counter searchTimeouts;
+    private final SimilarityVerdictCache verdictCache;
+    private final Map<String, GroupShard> shards = new ConcurrentHashMap<>();
+    private final Map<Long, GroupShard> shardByGroup = new ConcurrentHashMap<>();
 
-    private static final int MAX_GROUPS = 100;
+    public TicketGroupingService(WebClient ollamaWebClient, OllamaProperties ollamaProperties,
+            EmbeddingClient embeddingClient, GroupingProperties groupingProperties, GroupStateStore groupStateStore,
+            CommonIdAllocator commonIdAllocator, MeterRegistry meterRegistry, ObjectMapper mapper) {
+        this.ollamaWebClient = ollamaWebClient;
+        this.ollamaProperties = ollamaProperties;
+        this.embeddingClient = embeddingClient;
+        this.groupingProperties = groupingProperties;
+        this.groupStateStore = groupStateStore;
+        this.commonIdAllocator = commonIdAllocator;
+        this.meterRegistry = meterRegistry;
+        this.mapper = mapper;
+        this.lshPruningRatio = DistributionSummary.builder("grouping.lsh.pruning.ratio")
+                .description("Share of registered groups skipped by the MinHash/LSH filter per ticket")
+                .register(meterRegistry);
+        this.lshPrunedComparisons = Counter.builder("grouping.lsh.pruned")
+                .description("LLM comparisons avoided by the MinHash/LSH filter")
+                .register(meterRegistry);
+        this.assignLatency = Timer.builder("grouping.assign.latency")
+                .description("Time to assign a commonId to a labeled ticket")
+                .tag("mode", groupingProperties.search().mode().name())
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.searchTimeouts = Counter.builder("grouping.search.timeouts")
+                .description("Parallel group searches that ran out of time and opened a new group")
+                .register(meterRegistry);
+        var cache = groupingProperties.verdictCache();
+        this.verdictCache = cache.enabled() ? new SimilarityVerdictCache(cache.capacity(), cache.ttlMs()) : null;
+        if (verdictCache != null) {
+            verdictCache.bindTo(meterRegistry);
+        }
+
+        for (var category : Category.values()) {
+            if (groupingProperties.shards().byTicketType()) {
+                for (var ticketType : TicketType.values()) {
+                    shard(category.name() + ":" + ticketType.name());
+                }
+            } else {
+                shard(category.name());
+            }
+        }
+    }
+
+    @PostConstruct
+    void subscribeToGroupState() {
+        groupStateStore.subscribe(this);
+    }
 
     public Long assignCommonId(LabeledTicketEvent ticket) {
-        for (var group : ticketGroups) {
-            if (areSimilar(ticket, group.representative())) {
-                log.info("Ticket {} groupé avec commonId {}", ticket.ticketId(), group.commonId());
-                group.addTicket(ticket);
-                return group.commonId();
+        return assignLatency.record(() -> doAssignCommonId(ticket));
+    }
+
+    private Long doAssignCommonId(LabeledTicketEvent ticket) {
+        var shard = shardFor(ticket);
+        var embedding = embed(ticket);
+        var signature = shard.signature(ticket.subject(), ticket.body());
+        var candidates = embedding != null
+                ? nearestGroups(shard, embedding)
+                : byLikelihood(lexicalCandidates(shard, signature));
+
+        var match = findMatch(ticket, TicketFingerprint.of(ticket.body()), candidates);
+        if (match != null) {
+            log.info("Ticket {} groupé avec commonId {}", ticket.ticketId(), match.commonId());
+            match.addTicket(embedding);
+            if (embedding != null) {
+                shard.index(match);
             }
+            groupStateStore.save(match);
+            return match.commonId();
         }
 
-        var newCommonId = nextCommonId.getAndIncrement();
-        var newGroup = new TicketGroup(newCommonId, ticket);
-        ticketGroups.addLast(newGroup);
+        var newCommonId = commonIdAllocator.nextId();
+        var newGroup = new TicketGroup(newCommonId, ticket, embedding, signature);
+        register(shard, newGroup, true);
+        groupStateStore.save(newGroup);
 
-        while (ticketGroups.size() > MAX_GROUPS) {
-            ticketGroups.pollFirst();
+        for (var evicted : shard.evictOverflow()) {
+            evicted(shard, evicted, "capacity");
+            groupStateStore.delete(evicted.commonId());
         }
 
-        log.info("Nouveau groupe créé avec commonId {} pour ticket {}", newCommonId, ticket.ticketId());
+        log.info("Nouveau groupe créé avec commonId {} pour ticket {} (shard {})",
+                newCommonId, ticket.ticketId(), shard.key());
         return newCommonId;
     }
 
-    private boolean areSimilar(LabeledTicketEvent ticket1, LabeledTicketEvent ticket2) {
+    @Scheduled(fixedDelayString = "${grouping.shards.sweepIntervalMs}")
+    public void evictIdleGroups() {
+        var cutoff = Instant.now().minusMillis(groupingProperties.shards().idleTtlMs());
+        for (var shard : shards.values()) {
+            for (var evicted : shard.evictIdle(cutoff)) {
+                evicted(shard, evicted, "idle");
+                groupStateStore.delete(evicted.commonId());
+            }
+        }
+    }
+
+    @Override
+    public void onGroupRestored(TicketGroup group, boolean replaying) {
+        var shard = shardFor(group.representative());
+        register(shard, group, !replaying);
+        for (var evicted : shard.evictOverflow()) {
+            evicted(shard, evicted, "capacity");
+        }
+    }
+
+    @Override
+    public void onGroupRemoved(long commonId) {
+        var shard = shardByGroup.remove(commonId);
+        if (shard != null && shard.remove(commonId) != null) {
+            meterRegistry.counter("grouping.shard.evictions", "shard", shard.key(), "reason", "remote").increment();
+        }
+    }
+
+    @Override
+    public void onReplayCompleted() {
+        log.info("{} groupes restaurés, reconstruction de l'index ANN en arrière-plan", shardByGroup.size());
+        Thread.ofVirtual().name("group-index-rebuild").start(() -> {
+            for (var shard : shards.values()) {
+                for (var group : shard.groups()) {
+                    shard.index(group);
+                }
+            }
+        });
+    }
+
+    private void register(GroupShard shard, TicketGroup group, boolean indexCentroid) {
+        var previous = shardByGroup.put(group.commonId(), shard);
+        if (previous != null && previous != shard) {
+            previous.remove(group.commonId());
+        }
+        shard.put(group, indexCentroid);
+    }
+
+    private void evicted(GroupShard shard, TicketGroup group, String reason) {
+        shardByGroup.remove(group.commonId(), shard);
+        meterRegistry.counter("grouping.shard.evictions", "shard", shard.key(), "reason", reason).increment();
+        log.debug("Groupe {} évincé du shard {} ({})", group.commonId(), shard.key(), reason);
+    }
+
+    private GroupShard shardFor(LabeledTicketEvent ticket) {
+        var category = ticket.category() != null ? ticket.category().name() : UNKNOWN_SHARD;
+        if (!groupingProperties.shards().byTicketType()) {
+            return shard(category);
+        }
+        var ticketType = ticket.ticketType() != null ? ticket.ticketType().name() : UNKNOWN_SHARD;
+        return shard(category + ":" + ticketType);
+    }
+
+    private GroupShard shard(String key) {
+        return shards.computeIfAbsent(key, k -> {
+            var config = groupingProperties.shards();
+            var capacity = config.capacities() != null
+                    ? config.capacities().getOrDefault(k, config.capacity())
+                    : config.capacity();
+            var shard = new GroupShard(k, capacity, groupingProperties.ann(), groupingProperties.lsh());
+            Gauge.builder("grouping.shard.size", shard, GroupShard::size)
+                    .description("Number of live ticket groups in a grouping shard")
+                    .tag("shard", k)
+                    .register(meterRegistry);
+            return shard;
+        });
+    }
+
+    private float[] embed(LabeledTicketEvent ticket) {
+        if (!groupingProperties.embedding().enabled()) {
+            return null;
+        }
         try {
-            var prompt = buildSimilarityPrompt(ticket1, ticket2);
-
-            var request = Map.of(
-                    "model", ollamaProperties.model().classifier(),
-                    "prompt", prompt,
-                    "stream", false);
-
-            var response = ollamaWebClient.post()
-                    .uri("/api/generate")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(OllamaResponse.class)
-                    .block();
-
-            if (response == null || response.response() == null) {
-                log.error("Réponse vide d'Ollama lors de la comparaison de tickets");
-                return false;
+            return embeddingClient.embed(ticket.subject() + "\n" + ticket.body());
+        } catch (Exception e) {
+            log.warn("Embedding indisponible pour ticket {}, comparaison exhaustive: {}",
+                    ticket.ticketId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private List<TicketGroup> nearestGroups(GroupShard shard, float[] embedding) {
+        var ann = groupingProperties.ann();
+        var search = groupingProperties.search();
+        // A one-shot search confirms every candidate in a single call, so it gets its own candidate budget
+        var confirmations = search.mode() == GroupingProperties.SearchMode.ONE_SHOT
+                ? Math.max(ann.llmConfirmations(), search.oneShotCandidates())
+                : ann.llmConfirmations();
+        return shard.nearest(embedding, Math.max(ann.candidates(), confirmations), ann.similarityThreshold()).stream()
+                .limit(confirmations)
+                .toList();
+    }
+
+    private List<TicketGroup> lexicalCandidates(GroupShard shard, int[] signature) {
+        if (!groupingProperties.lsh().enabled()) {
+            return shard.groups();
+        }
+
+        var total = shard.size();
+        var candidates = shard.lexicalCandidates(signature);
+
+        if (total > 0) {
+            lshPruningRatio.record((double) (total - candidates.size()) / total);
+            lshPrunedComparisons.increment(total - candidates.size());
+        }
+        log.debug("Filtre LSH: {} candidats sur {} groupes (shard {})", candidates.size(), total, shard.key());
+
+        return candidates;
+    }
+
+    private List<TicketGroup> byLikelihood(List<TicketGroup> candidates) {
+        return candidates.stream()
+                .sorted(Comparator.comparing(TicketGroup::lastActivity).reversed()
+                        .thenComparing(Comparator.comparingInt(TicketGroup::size).reversed()))
+                .toList();
+    }
+
+    private TicketGroup findMatch(LabeledTicketEvent ticket, long fingerprint, List<TicketGroup> candidates) {
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        var search = groupingProperties.search();
+        if (search.mode() == GroupingProperties.SearchMode.ONE_SHOT && candidates.size() > 1) {
+            return findMatchOneShot(ticket, fingerprint,
+                    candidates.stream().limit(search.oneShotCandidates()).toList());
+        }
+        return findMatchPairwise(ticket, fingerprint, candidates);
+    }
+
+    private TicketGroup findMatchPairwise(LabeledTicketEvent ticket, long fingerprint, List<TicketGroup> candidates) {
+        var search = groupingProperties.search();
+        if (search.mode() == GroupingProperties.SearchMode.SEQUENTIAL || candidates.size() <= 1) {
+            for (var group : candidates) {
+                if (Boolean.TRUE.equals(areSimilar(ticket, fingerprint, group).block())) {
+                    return group;
+                }
             }
+            return null;
+        }
+
+        // A failed comparison only fails the search when no other candidate matched: opening a new
+        // group because Ollama errored would split the incident for good
+        return Flux.fromIterable(candidates)
+                .flatMapDelayError(group -> compare(ticket, fingerprint, group)
+                        .filter(Boolean::booleanValue)
+                        .map(similar -> group), search.parallelism(), 1)
+                .next()
+                .timeout(Duration.ofMillis(search.timeoutMs()))
+                .onErrorResume(TimeoutException.class, e -> {
+                    searchTimeouts.increment();
+                    log.warn("Recherche parallèle de groupe expirée après {} ms pour ticket {}, nouveau groupe",
+                            search.timeoutMs(), ticket.ticketId());
+                    return Mono.empty();
+                })
+                .block();
+    }
 
-            var similar = response.response().trim().toUpperCase().startsWith("OUI");
+    private TicketGroup findMatchOneShot(LabeledTicketEvent ticket, long fingerprint, List<TicketGroup> candidates) {
+        var unknown = candidates;
+        if (verdictCache != null) {
+            for (var group : candidates) {
+                if (Boolean.TRUE.equals(verdictCache.get(TicketFingerprint.pair(fingerprint, group.fingerprint())))) {
+                    return group;
+                }
+            }
+            unknown = candidates.stream()
+                    .filter(group -> verdictCache.get(TicketFingerprint.pair(fingerprint, group.fingerprint())) == null)
+                    .toList();
+        }
+        if (unknown.size() <= 1) {
+            return findMatchPairwise(ticket, fingerprint, unknown);
+        }
 
-            log.debug("Comparaison tickets {} et {}: {}",
-                    ticket1.ticketId(), ticket2.ticketId(), similar ? "similaires" : "différents");
+        // Same contract as the parallel search: a timeout deliberately opens a new group, any other error
+        // fails the search so the ticket is retried rather than splitting the incident
+        var timeoutMs = groupingProperties.search().timeoutMs();
+        var timedOut = new AtomicBoolean();
+        var answer = askBestMatch(ticket, unknown)
+                .timeout(Duration.ofMillis(timeoutMs))
+                .onErrorResume(TimeoutException.class, e -> {
+                    timedOut.set(true);
+                    return Mono.empty();
+                })
+                .block();
+        if (timedOut.get()) {
+            searchTimeouts.increment();
+            log.warn("Recherche de groupe en un appel expirée après {} ms pour ticket {}, nouveau groupe",
+                    timeoutMs, ticket.ticketId());
+            return null;
+        }
 
-            return similar;
+        OptionalInt index;
+        try {
+            index = parseMatchIndex(answer, unknown.size());
         } catch (Exception e) {
-            log.error("Erreur lors de la comparaison des tickets", e);
-            return false;
+            log.warn("Réponse JSON inexploitable pour ticket {} ({}), repli sur les comparaisons deux à deux",
+                    ticket.ticketId(), e.getMessage());
+            return findMatchPairwise(ticket, fingerprint, unknown);
+        }
+
+        // Picking one group says nothing about the others, so only a "none of them" answer rules them out
+        if (verdictCache != null) {
+            if (index.isPresent()) {
+                var chosen = unknown.get(index.getAsInt());
+                verdictCache.put(TicketFingerprint.pair(fingerprint, chosen.fingerprint()), true);
+            } else {
+                for (var group : unknown) {
+                    verdictCache.put(TicketFingerprint.pair(fingerprint, group.fingerprint()), false);
+                }
+            }
+        }
+        log.debug("Recherche en un appel pour ticket {}: {} candidats, groupe retenu {}",
+                ticket.ticketId(), unknown.size(), index.isPresent() ? index.getAsInt() + 1 : "aucun");
+
+        return index.isPresent() ? unknown.get(index.getAsInt()) : null;
+    }
+
+    private OptionalInt parseMatchIndex(String json, int candidates) throws Exception {
+        if (json == null) {
+            throw new IllegalArgumentException("réponse vide");
+        }
+        var node = mapper.readTree(json).get("groupe");
+        if (node == null) {
+            throw new IllegalArgumentException("champ 'groupe' absent");
+        }
+        if (node.isNull()) {
+            return OptionalInt.empty();
+        }
+        if (!node.canConvertToInt() || node.asInt() < 1 || node.asInt() > candidates) {
+            throw new IllegalArgumentException("indice invalide " + node);
         }
+        return OptionalInt.of(node.asInt() - 1);
+    }
+
+    private Mono<String> askBestMatch(LabeledTicketEvent ticket, List<TicketGroup> candidates) {
+        var request = Map.of(
+                "model", ollamaProperties.model().classifier(),
+                "prompt", buildBestMatchPrompt(ticket, candidates),
+                "stream", false,
+                "format", "json");
+
+        return ollamaWebClient.post()
+                .uri("/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(OllamaResponse.class)
+                .mapNotNull(OllamaResponse::response);
+    }
+
+    private Mono<Boolean> areSimilar(LabeledTicketEvent ticket, long fingerprint, TicketGroup group) {
+        return compare(ticket, fingerprint, group)
+                .onErrorResume(e -> !(e instanceof OllamaUnavailableException), e -> {
+                    log.error("Erreur lors de la comparaison des tickets", e);
+                    return Mono.just(false);
+                });
+    }
+
+    private Mono<Boolean> compare(LabeledTicketEvent ticket, long fingerprint, TicketGroup group) {
+        var verdict = askSimilarity(ticket, group.representative());
+
+        if (verdictCache != null) {
+            var key = TicketFingerprint.pair(fingerprint, group.fingerprint());
+            var cached = verdictCache.get(key);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            verdict = verdict.doOnNext(similar -> verdictCache.put(key, similar));
+        }
+
+        return verdict.defaultIfEmpty(false);
+    }
+
+    private Mono<Boolean> askSimilarity(LabeledTicketEvent ticket1, LabeledTicketEvent ticket2) {
+        var prompt = buildSimilarityPrompt(ticket1, ticket2);
+
+        var request = Map.of(
+                "model", ollamaProperties.model().classifier(),
+                "prompt", prompt,
+                "stream", false);
+
+        return ollamaWebClient.post()
+                .uri("/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(OllamaResponse.class)
+                .mapNotNull(response -> {
+                    if (response.response() == null) {
+                        log.error("Réponse vide d'Ollama lors de la comparaison de tickets");
+                        return null;
+                    }
+
+                    var similar = response.response().trim().toUpperCase().startsWith("OUI");
+
+                    log.debug("Comparaison tickets {} et {}: {}",
+                            ticket1.ticketId(), ticket2.ticketId(), similar ? "similaires" : "différents");
+
+                    return similar;
+                });
     }
 
     private record OllamaResponse(String response) {
@@ -118,13 +495,35 @@ public class TicketGroupingService {
                 ticket2.subject(), ticket2.body(), ticket2.category(), ticket2.priority());
     }
 
-    private record TicketGroup(Long commonId, LabeledTicketEvent representative, List<LabeledTicketEvent> tickets) {
-        private TicketGroup(Long commonId, LabeledTicketEvent representative) {
-            this(commonId, representative, new CopyOnWriteArrayList<>(List.of(representative)));
-        }
+    private String buildBestMatchPrompt(LabeledTicketEvent ticket, List<TicketGroup> candidates) {
+        var groups = new StringBuilder();
+        for (var i = 0; i < candidates.size(); i++) {
+            var representative = candidates.get(i).representative();
+            groups.append("""
 
-        private void addTicket(LabeledTicketEvent ticket) {
-            this.tickets.add(ticket);
+                    GROUPE %d:
+                    Sujet: %s
+                    Description: %s
+                    """.formatted(i + 1, representative.subject(), representative.body()));
         }
+
+        return """
+                Tu es un expert en analyse de tickets de support technique.
+
+                Voici un nouveau ticket utilisateur :
+
+                NOUVEAU TICKET:
+                Sujet: %s
+                Description: %s
+                Catégorie: %s
+                Priorité: %s
+
+                Voici les groupes existants, chacun représenté par un ticket :
+                %s
+                Question: Le nouveau ticket décrit-il le MÊME problème technique sous-jacent que l'un de ces groupes ?
+
+                Réponds UNIQUEMENT avec un objet JSON de la forme {"groupe": N} où N est le numéro du groupe correspondant,
+                ou {"groupe": null} si aucun groupe ne traite du même problème (même si les mots utilisés sont différents).
+                """.formatted(ticket.subject(), ticket.body(), ticket.category(), ticket.priority(), groups);
     }
 }
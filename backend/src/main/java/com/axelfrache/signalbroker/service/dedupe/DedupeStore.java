@@ -0,0 +1,166 @@
+package com.axelfrache.signalbroker.service.dedupe;
+
+import com.axelfrache.signalbroker.config.properties.DedupeProperties;
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import com.axelfrache.signalbroker.model.kafka.DedupeMarker;
+import com.axelfrache.signalbroker.model.kafka.RawInboundEvent;
+import com.axelfrache.signalbroker.service.kafka.CompactedTopicTailer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which raw messages were already formatted, keyed by channel and source message id, for the
+ * dedupe window. The in-memory map is persisted to a compacted topic and replayed on startup.
+ */
+@Slf4j
+@Component
+public class DedupeStore implements SmartLifecycle {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaAppProperties kafkaProperties;
+    private final DedupeProperties dedupeProperties;
+    private final Map<String, Instant> seen = new ConcurrentHashMap<>();
+    private final CompactedTopicTailer<DedupeMarker> tailer;
+    private final Counter checked;
+    private final Counter duplicates;
+    private final Counter persistFailures;
+
+    public DedupeStore(KafkaTemplate<String, Object> kafkaTemplate,
+            ConsumerFactory<String, DedupeMarker> dedupeConsumerFactory, KafkaAppProperties kafkaProperties,
+            DedupeProperties dedupeProperties, MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.kafkaProperties = kafkaProperties;
+        this.dedupeProperties = dedupeProperties;
+        this.tailer = new CompactedTopicTailer<>(dedupeConsumerFactory, topic(), "dedupe", this::apply);
+        this.checked = Counter.builder("dedupe.checked")
+                .description("Raw messages checked for duplicates")
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("dedupe.duplicates")
+                .description("Raw messages dropped as duplicates")
+                .register(meterRegistry);
+        this.persistFailures = Counter.builder("dedupe.persist.failures")
+                .description("Dedupe markers the broker did not acknowledge")
+                .register(meterRegistry);
+        Gauge.builder("dedupe.ratio", this, DedupeStore::duplicateRatio)
+                .description("Share of checked raw messages dropped as duplicates")
+                .register(meterRegistry);
+        Gauge.builder("dedupe.store.size", seen, Map::size)
+                .description("Source message ids remembered within the dedupe window")
+                .register(meterRegistry);
+    }
+
+    public boolean enabled() {
+        return dedupeProperties.enabled();
+    }
+
+    public boolean isDuplicate(RawInboundEvent raw) {
+        var key = key(raw);
+        if (!enabled() || key == null) {
+            return false;
+        }
+        checked.increment();
+        var seenAt = seen.get(key);
+        if (seenAt == null || expired(seenAt, Instant.now())) {
+            return false;
+        }
+        duplicates.increment();
+        log.info("Dropping duplicate {} message {} first seen at {}", raw.channelType(), raw.sourceMessageId(),
+                seenAt);
+        return true;
+    }
+
+    public void markSeen(RawInboundEvent raw) {
+        var key = key(raw);
+        if (!enabled() || key == null) {
+            return;
+        }
+        var now = Instant.now();
+        remember(key, now);
+        kafkaTemplate.send(topic(), key, new DedupeMarker(raw.eventId(), now, 1))
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        persistFailures.increment();
+                        log.warn("Failed to persist dedupe marker for {}: {}", key, e.getMessage());
+                    }
+                });
+    }
+
+    public double duplicateRatio() {
+        var total = checked.count();
+        return total == 0 ? 0 : duplicates.count() / total;
+    }
+
+    public static String key(RawInboundEvent raw) {
+        if (raw == null || raw.channelType() == null || raw.sourceMessageId() == null
+                || raw.sourceMessageId().isBlank()) {
+            return null;
+        }
+        return raw.channelType() + ":" + raw.sourceMessageId();
+    }
+
+    @Scheduled(fixedDelayString = "${dedupe.sweepIntervalMs}")
+    public void sweep() {
+        if (!enabled()) {
+            return;
+        }
+        var now = Instant.now();
+        seen.entrySet().removeIf(entry -> expired(entry.getValue(), now));
+    }
+
+    @Override
+    public void start() {
+        if (!enabled()) {
+            return;
+        }
+        tailer.replay(dedupeProperties.replayTimeoutMs());
+        tailer.follow();
+    }
+
+    @Override
+    public void stop() {
+        tailer.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return tailer.isRunning();
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 200;
+    }
+
+    void remember(String key, Instant seenAt) {
+        seen.merge(key, seenAt, (current, candidate) -> candidate.isAfter(current) ? candidate : current);
+    }
+
+    private void apply(ConsumerRecord<String, DedupeMarker> record, boolean replaying) {
+        var marker = record.value();
+        if (marker == null) {
+            seen.remove(record.key());
+        } else if (marker.seenAt() != null && !expired(marker.seenAt(), Instant.now())) {
+            remember(record.key(), marker.seenAt());
+        }
+    }
+
+    private boolean expired(Instant seenAt, Instant now) {
+        return seenAt.plusMillis(dedupeProperties.windowMs()).isBefore(now);
+    }
+
+    private String topic() {
+        return kafkaProperties.topics().dedupe();
+    }
+}
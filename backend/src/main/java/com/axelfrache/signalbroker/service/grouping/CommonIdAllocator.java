@@ -0,0 +1,66 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+import com.axelfrache.signalbroker.config.properties.GroupingProperties;
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Hands out commonIds from blocks leased through a single-partition topic: the offset the broker
+ * assigns to a lease record is unique across replicas, so block {@code offset} owns ids
+ * {@code offset * blockSize + 1 .. (offset + 1) * blockSize}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CommonIdAllocator {
+
+    private static final int LEASE_PARTITION = 0;
+    private static final long LEASE_TIMEOUT_SECONDS = 10;
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaAppProperties kafkaProperties;
+    private final GroupingProperties groupingProperties;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private long next = 1;
+    private long blockEnd = Long.MAX_VALUE;
+    private boolean leased;
+
+    public synchronized long nextId() {
+        if (groupingProperties.state().enabled() && (!leased || next >= blockEnd)) {
+            leaseBlock();
+        }
+        return next++;
+    }
+
+    private void leaseBlock() {
+        var blockSize = groupingProperties.state().idBlockSize();
+        try {
+            var result = kafkaTemplate.send(kafkaProperties.topics().groupIdLeases(), LEASE_PARTITION, instanceId,
+                            new IdLease(instanceId, blockSize, Instant.now()))
+                    .get(LEASE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            var block = result.getRecordMetadata().offset();
+            next = block * blockSize + 1;
+            blockEnd = next + blockSize;
+            leased = true;
+            log.info("Leased commonId block {} ({} to {})", block, next, blockEnd - 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while leasing a commonId block", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Unable to lease a commonId block: " + e.getMessage(), e);
+        }
+    }
+
+    private record IdLease(String instanceId, int blockSize, Instant leasedAt) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+import com.axelfrache.signalbroker.config.properties.GroupingProperties;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class GroupShard {
+
+    private final String key;
+    private final int capacity;
+    private final HnswIndex centroidIndex;
+    private final MinHashLshFilter lshFilter;
+    private final Map<Long, TicketGroup> groups = new ConcurrentHashMap<>();
+
+    public GroupShard(String key, int capacity, GroupingProperties.Ann ann, GroupingProperties.Lsh lsh) {
+        this.key = key;
+        this.capacity = capacity;
+        this.centroidIndex = new HnswIndex(ann.m(), ann.efConstruction(), ann.efSearch());
+        this.lshFilter = new MinHashLshFilter(lsh.bands(), lsh.rows(), lsh.shingleSize());
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public int size() {
+        return groups.size();
+    }
+
+    public TicketGroup get(long commonId) {
+        return groups.get(commonId);
+    }
+
+    public List<TicketGroup> groups() {
+        return List.copyOf(groups.values());
+    }
+
+    public int[] signature(String subject, String body) {
+        return lshFilter.signature(subject, body);
+    }
+
+    public synchronized void put(TicketGroup group, boolean indexCentroid) {
+        groups.put(group.commonId(), group);
+        if (group.signature() != null) {
+            lshFilter.add(group.commonId(), group.signature());
+        }
+        if (indexCentroid) {
+            index(group);
+        }
+    }
+
+    public synchronized void index(TicketGroup group) {
+        var centroid = group.centroid();
+        if (centroid != null && groups.get(group.commonId()) == group) {
+            centroidIndex.add(group.commonId(), centroid);
+        }
+    }
+
+    public synchronized TicketGroup remove(long commonId) {
+        var removed = groups.remove(commonId);
+        if (removed != null) {
+            centroidIndex.remove(commonId);
+            lshFilter.remove(commonId);
+        }
+        return removed;
+    }
+
+    public List<TicketGroup> nearest(float[] embedding, int k, double threshold) {
+        return centroidIndex.search(embedding, k).stream()
+                .filter(neighbor -> neighbor.similarity() >= threshold)
+                .map(neighbor -> groups.get(neighbor.id()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public List<TicketGroup> lexicalCandidates(int[] signature) {
+        return lshFilter.candidates(signature).stream()
+                .map(groups::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public synchronized List<TicketGroup> evictOverflow() {
+        var evicted = new ArrayList<TicketGroup>();
+        if (groups.size() <= capacity) {
+            return evicted;
+        }
+
+        var leastActive = groups.values().stream()
+                .sorted(Comparator.comparing(TicketGroup::lastActivity))
+                .limit(groups.size() - capacity)
+                .toList();
+        for (var group : leastActive) {
+            if (remove(group.commonId()) != null) {
+                evicted.add(group);
+            }
+        }
+        return evicted;
+    }
+
+    public synchronized List<TicketGroup> evictIdle(Instant cutoff) {
+        var evicted = new ArrayList<TicketGroup>();
+        for (var group : groups.values()) {
+            if (group.lastActivity().isBefore(cutoff) && remove(group.commonId()) != null) {
+                evicted.add(group);
+            }
+        }
+        return evicted;
+    }
+}
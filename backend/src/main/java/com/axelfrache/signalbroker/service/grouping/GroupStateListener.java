@@ -0,0 +1,9 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+public interface GroupStateListener {
+    void onGroupRestored(TicketGroup group, boolean replaying);
+
+    void onGroupRemoved(long commonId);
+
+    void onReplayCompleted();
+}
@@ -0,0 +1,164 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+import com.axelfrache.signalbroker.config.properties.GroupingProperties;
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import com.axelfrache.signalbroker.model.kafka.GroupSnapshot;
+import com.axelfrache.signalbroker.service.kafka.CompactedTopicTailer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.UUID;
+
+@Slf4j
+@Component
+public class GroupStateStore implements SmartLifecycle {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaAppProperties kafkaProperties;
+    private final GroupingProperties groupingProperties;
+    private final Counter saveFailures;
+    private final Counter deleteFailures;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final CompactedTopicTailer<GroupSnapshot> tailer;
+
+    private volatile GroupStateListener listener;
+
+    public GroupStateStore(KafkaTemplate<String, Object> kafkaTemplate,
+            ConsumerFactory<String, GroupSnapshot> groupStateConsumerFactory, KafkaAppProperties kafkaProperties,
+            GroupingProperties groupingProperties, MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.kafkaProperties = kafkaProperties;
+        this.groupingProperties = groupingProperties;
+        this.tailer = new CompactedTopicTailer<>(groupStateConsumerFactory, topic(), "group-state", this::apply);
+        this.saveFailures = persistFailures(meterRegistry, "save");
+        this.deleteFailures = persistFailures(meterRegistry, "delete");
+    }
+
+    public boolean enabled() {
+        return groupingProperties.state().enabled();
+    }
+
+    public void subscribe(GroupStateListener listener) {
+        this.listener = listener;
+    }
+
+    public void save(TicketGroup group) {
+        if (!enabled()) {
+            return;
+        }
+        var snapshot = new GroupSnapshot(
+                group.commonId(),
+                group.representative(),
+                toHalfPrecision(group.centroid()),
+                group.signature(),
+                group.size(),
+                group.lastActivity(),
+                instanceId,
+                1);
+        kafkaTemplate.send(topic(), Long.toString(group.commonId()), snapshot)
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        saveFailures.increment();
+                        log.warn("Failed to persist group {}: {}", group.commonId(), e.getMessage());
+                    }
+                });
+    }
+
+    public void delete(long commonId) {
+        if (!enabled()) {
+            return;
+        }
+        kafkaTemplate.send(topic(), Long.toString(commonId), null)
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        deleteFailures.increment();
+                        log.warn("Failed to tombstone group {}: {}", commonId, e.getMessage());
+                    }
+                });
+    }
+
+    @Override
+    public void start() {
+        if (!enabled() || listener == null) {
+            return;
+        }
+        tailer.replay(groupingProperties.state().replayTimeoutMs());
+        listener.onReplayCompleted();
+        tailer.follow();
+    }
+
+    @Override
+    public void stop() {
+        tailer.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return tailer.isRunning();
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 200;
+    }
+
+    private void apply(ConsumerRecord<String, GroupSnapshot> record, boolean replaying) {
+        var snapshot = record.value();
+        if (snapshot == null) {
+            listener.onGroupRemoved(Long.parseLong(record.key()));
+            return;
+        }
+        if (!replaying && instanceId.equals(snapshot.ownerId())) {
+            return;
+        }
+        listener.onGroupRestored(new TicketGroup(
+                snapshot.commonId(),
+                snapshot.representative(),
+                fromHalfPrecision(snapshot.centroid()),
+                snapshot.signature(),
+                snapshot.size(),
+                snapshot.updatedAt()), replaying);
+    }
+
+    private String topic() {
+        return kafkaProperties.topics().groupState();
+    }
+
+    private static Counter persistFailures(MeterRegistry meterRegistry, String operation) {
+        return Counter.builder("grouping.state.persist.failures")
+                .description("Group state records the broker did not acknowledge")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static byte[] toHalfPrecision(float[] vector) {
+        if (vector == null) {
+            return null;
+        }
+        var buffer = ByteBuffer.allocate(vector.length * Short.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (var value : vector) {
+            buffer.putShort(Float.floatToFloat16(value));
+        }
+        return buffer.array();
+    }
+
+    private static float[] fromHalfPrecision(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        var buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        var vector = new float[bytes.length / Short.BYTES];
+        for (var i = 0; i < vector.length; i++) {
+            vector[i] = Float.float16ToFloat(buffer.getShort());
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,315 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory Hierarchical Navigable Small World graph over L2-normalized vectors, so that the
+ * similarity returned by {@link #search} is the cosine similarity. Removals are lazy: removed
+ * nodes keep routing searches until they outnumber live ones, then the graph is rebuilt. Re-adding an
+ * id with a different vector retires its old node and links a fresh one at the new position.
+ */
+public class HnswIndex {
+
+    private static final Comparator<Candidate> CLOSEST_FIRST =
+            Comparator.comparingDouble(Candidate::similarity).reversed();
+    private static final Comparator<Candidate> FARTHEST_FIRST =
+            Comparator.comparingDouble(Candidate::similarity);
+
+    private final int m;
+    private final int maxNeighborsLayer0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelFactor;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<Long, Integer> positions = new HashMap<>();
+    private int entryPoint = -1;
+    private int topLevel = -1;
+    private int dimension = -1;
+    private int removed;
+
+    public HnswIndex(int m, int efConstruction, int efSearch) {
+        if (m < 2) {
+            throw new IllegalArgumentException("m must be at least 2");
+        }
+        this.m = m;
+        this.maxNeighborsLayer0 = m * 2;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = Math.max(efSearch, 1);
+        this.levelFactor = 1.0 / Math.log(m);
+    }
+
+    public void add(long id, float[] vector) {
+        var normalized = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            if (dimension < 0) {
+                dimension = normalized.length;
+            } else if (dimension != normalized.length) {
+                throw new IllegalArgumentException(
+                        "Vector dimension " + normalized.length + " does not match index dimension " + dimension);
+            }
+
+            var existing = positions.get(id);
+            if (existing != null) {
+                var node = nodes.get(existing);
+                if (Arrays.equals(node.vector, normalized)) {
+                    return;
+                }
+                positions.remove(id);
+                node.removed = true;
+                removed++;
+            }
+            insert(id, normalized);
+            rebuildIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            var position = positions.remove(id);
+            if (position == null) {
+                return false;
+            }
+            nodes.get(position).removed = true;
+            removed++;
+            rebuildIfSparse();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Neighbor> search(float[] query, int k) {
+        var normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (positions.isEmpty() || normalized.length != dimension) {
+                return List.of();
+            }
+
+            var current = entryPoint;
+            for (var level = topLevel; level > 0; level--) {
+                current = greedyClosest(normalized, current, level);
+            }
+
+            return searchLayer(normalized, current, Math.max(efSearch, k), 0).stream()
+                    .filter(candidate -> !nodes.get(candidate.position()).removed)
+                    .limit(k)
+                    .map(candidate -> new Neighbor(nodes.get(candidate.position()).id, candidate.similarity()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return positions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(long id, float[] vector) {
+        var level = randomLevel();
+        var position = nodes.size();
+        nodes.add(new Node(id, vector, level, m, maxNeighborsLayer0));
+        positions.put(id, position);
+
+        if (entryPoint < 0) {
+            entryPoint = position;
+            topLevel = level;
+            return;
+        }
+
+        var current = entryPoint;
+        for (var l = topLevel; l > level; l--) {
+            current = greedyClosest(vector, current, l);
+        }
+
+        for (var l = Math.min(level, topLevel); l >= 0; l--) {
+            var candidates = searchLayer(vector, current, efConstruction, l);
+            var maxNeighbors = l == 0 ? maxNeighborsLayer0 : m;
+            for (var i = 0; i < Math.min(m, candidates.size()); i++) {
+                var neighbor = candidates.get(i).position();
+                connect(position, neighbor, l, maxNeighbors);
+                connect(neighbor, position, l, maxNeighbors);
+            }
+            current = candidates.getFirst().position();
+        }
+
+        if (level > topLevel) {
+            topLevel = level;
+            entryPoint = position;
+        }
+    }
+
+    private void connect(int from, int to, int level, int maxNeighbors) {
+        var node = nodes.get(from);
+        var links = node.links[level];
+        var count = node.linkCounts[level];
+
+        if (count < maxNeighbors) {
+            links[count] = to;
+            node.linkCounts[level] = count + 1;
+            return;
+        }
+
+        var pool = new ArrayList<Candidate>(count + 1);
+        for (var i = 0; i < count; i++) {
+            pool.add(new Candidate(links[i], similarity(node.vector, nodes.get(links[i]).vector)));
+        }
+        pool.add(new Candidate(to, similarity(node.vector, nodes.get(to).vector)));
+        pool.sort(CLOSEST_FIRST);
+        for (var i = 0; i < maxNeighbors; i++) {
+            links[i] = pool.get(i).position();
+        }
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        var current = start;
+        var best = similarity(query, nodes.get(current).vector);
+        var improved = true;
+        while (improved) {
+            improved = false;
+            var node = nodes.get(current);
+            for (var i = 0; i < node.linkCounts[level]; i++) {
+                var neighbor = node.links[level][i];
+                var similarity = similarity(query, nodes.get(neighbor).vector);
+                if (similarity > best) {
+                    best = similarity;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private List<Candidate> searchLayer(float[] query, int entry, int ef, int level) {
+        var visited = new BitSet(nodes.size());
+        visited.set(entry);
+
+        var start = new Candidate(entry, similarity(query, nodes.get(entry).vector));
+        var frontier = new PriorityQueue<>(CLOSEST_FIRST);
+        var results = new PriorityQueue<>(FARTHEST_FIRST);
+        frontier.add(start);
+        results.add(start);
+
+        while (!frontier.isEmpty()) {
+            var current = frontier.poll();
+            if (results.size() >= ef && current.similarity() < results.peek().similarity()) {
+                break;
+            }
+
+            var node = nodes.get(current.position());
+            for (var i = 0; i < node.linkCounts[level]; i++) {
+                var neighbor = node.links[level][i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+
+                var similarity = similarity(query, nodes.get(neighbor).vector);
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    var candidate = new Candidate(neighbor, similarity);
+                    frontier.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        var sorted = new ArrayList<>(results);
+        sorted.sort(CLOSEST_FIRST);
+        return sorted;
+    }
+
+    private void rebuildIfSparse() {
+        if (removed > positions.size() && removed > m) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        var live = nodes.stream().filter(node -> !node.removed).toList();
+        nodes.clear();
+        positions.clear();
+        entryPoint = -1;
+        topLevel = -1;
+        removed = 0;
+        for (var node : live) {
+            insert(node.id, node.vector);
+        }
+    }
+
+    private int randomLevel() {
+        return (int) Math.floor(-Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * levelFactor);
+    }
+
+    private static double similarity(float[] a, float[] b) {
+        var dot = 0.0;
+        for (var i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    private static float[] normalize(float[] vector) {
+        var norm = 0.0;
+        for (var value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+
+        var normalized = new float[vector.length];
+        if (norm == 0.0) {
+            return normalized;
+        }
+        for (var i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    public record Neighbor(long id, double similarity) {
+    }
+
+    private record Candidate(int position, double similarity) {
+    }
+
+    private static final class Node {
+        private final long id;
+        private final int[][] links;
+        private final int[] linkCounts;
+        private final float[] vector;
+        private boolean removed;
+
+        private Node(long id, float[] vector, int level, int m, int maxNeighborsLayer0) {
+            this.id = id;
+            this.vector = vector;
+            this.links = new int[level + 1][];
+            this.linkCounts = new int[level + 1];
+            for (var l = 0; l <= level; l++) {
+                links[l] = new int[l == 0 ? maxNeighborsLayer0 : m];
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * MinHash signatures over word shingles with LSH banding: two texts land in a common bucket with
+ * probability {@code 1 - (1 - J^rows)^bands}, J being the Jaccard similarity of their shingle sets.
+ */
+public class MinHashLshFilter {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final int MIN_TOKEN_LENGTH = 3;
+
+    private final int bands;
+    private final int rows;
+    private final int shingleSize;
+    private final long[] seeds;
+    private final Map<Long, Set<Long>> buckets = new ConcurrentHashMap<>();
+    private final Map<Long, long[]> groupBuckets = new ConcurrentHashMap<>();
+
+    public MinHashLshFilter(int bands, int rows, int shingleSize) {
+        if (bands < 1 || rows < 1 || shingleSize < 1) {
+            throw new IllegalArgumentException("bands, rows and shingleSize must be positive");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.shingleSize = shingleSize;
+        this.seeds = new long[bands * rows];
+        for (var i = 0; i < seeds.length; i++) {
+            seeds[i] = mix(0x9E3779B97F4A7C15L * (i + 1));
+        }
+    }
+
+    public int[] signature(String subject, String body) {
+        var shingles = shingles((subject != null ? subject : "") + " " + (body != null ? body : ""));
+        var signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        for (var shingle : shingles) {
+            for (var i = 0; i < seeds.length; i++) {
+                var hash = (int) (mix(shingle ^ seeds[i]) >>> 33);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    public void add(long groupId, int[] signature) {
+        var keys = bucketKeys(signature);
+        groupBuckets.put(groupId, keys);
+        for (var key : keys) {
+            buckets.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(groupId);
+        }
+    }
+
+    public void remove(long groupId) {
+        var keys = groupBuckets.remove(groupId);
+        if (keys == null) {
+            return;
+        }
+        for (var key : keys) {
+            buckets.computeIfPresent(key, (k, members) -> {
+                members.remove(groupId);
+                return members.isEmpty() ? null : members;
+            });
+        }
+    }
+
+    public Set<Long> candidates(int[] signature) {
+        var candidates = new HashSet<Long>();
+        for (var key : bucketKeys(signature)) {
+            var members = buckets.get(key);
+            if (members != null) {
+                candidates.addAll(members);
+            }
+        }
+        return candidates;
+    }
+
+    public int size() {
+        return groupBuckets.size();
+    }
+
+    private long[] bucketKeys(int[] signature) {
+        var keys = new long[bands];
+        for (var band = 0; band < bands; band++) {
+            var hash = mix(band + 1L);
+            for (var row = 0; row < rows; row++) {
+                hash = mix(hash ^ signature[band * rows + row]);
+            }
+            keys[band] = hash;
+        }
+        return keys;
+    }
+
+    private Set<Long> shingles(String text) {
+        var normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        var tokens = new ArrayList<String>();
+        for (var token : NON_WORD.split(normalized.toLowerCase(Locale.ROOT))) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                tokens.add(token);
+            }
+        }
+
+        var size = Math.min(shingleSize, Math.max(tokens.size(), 1));
+        var shingles = new HashSet<Long>();
+        for (var i = 0; i + size <= tokens.size(); i++) {
+            shingles.add(hash(tokens.subList(i, i + size)));
+        }
+        return shingles;
+    }
+
+    private static long hash(List<String> tokens) {
+        var hash = 0xCBF29CE484222325L;
+        for (var token : tokens) {
+            for (var i = 0; i < token.length(); i++) {
+                hash ^= token.charAt(i);
+                hash *= 0x100000001B3L;
+            }
+            hash ^= ' ';
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
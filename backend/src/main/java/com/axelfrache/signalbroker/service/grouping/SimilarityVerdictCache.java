@@ -0,0 +1,139 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of pairwise similarity verdicts keyed by {@link TicketFingerprint#pair}. Entries
+ * live in flat primitive arrays organised as 4-way sets: a full set replaces its entry closest to
+ * expiry, and expired entries read as misses.
+ */
+public class SimilarityVerdictCache implements MeterBinder {
+
+    private static final int WAYS = 4;
+    private static final int STRIPES = 64;
+    private static final long EMPTY = 0L;
+    private static final byte DIFFERENT = 1;
+    private static final byte SIMILAR = 2;
+    private static final int BYTES_PER_ENTRY = Long.BYTES * 2 + 1;
+
+    private final long[] keys;
+    private final long[] expiresAt;
+    private final byte[] verdicts;
+    private final int setMask;
+    private final long ttlMillis;
+    private final Object[] locks = new Object[STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public SimilarityVerdictCache(int capacity, long ttlMillis) {
+        var sets = Integer.highestOneBit(Math.max(capacity / WAYS, 1));
+        this.keys = new long[sets * WAYS];
+        this.expiresAt = new long[sets * WAYS];
+        this.verdicts = new byte[sets * WAYS];
+        this.setMask = sets - 1;
+        this.ttlMillis = ttlMillis;
+        for (var i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public Boolean get(long key) {
+        key = nonEmpty(key);
+        var set = setOf(key);
+        var now = System.currentTimeMillis();
+        synchronized (locks[set & (STRIPES - 1)]) {
+            var base = set * WAYS;
+            for (var slot = base; slot < base + WAYS; slot++) {
+                if (keys[slot] == key && expiresAt[slot] > now) {
+                    hits.increment();
+                    return verdicts[slot] == SIMILAR;
+                }
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(long key, boolean similar) {
+        key = nonEmpty(key);
+        var set = setOf(key);
+        var now = System.currentTimeMillis();
+        synchronized (locks[set & (STRIPES - 1)]) {
+            var base = set * WAYS;
+            var target = base;
+            for (var slot = base; slot < base + WAYS; slot++) {
+                if (keys[slot] == key || keys[slot] == EMPTY) {
+                    target = slot;
+                    break;
+                }
+                if (expiresAt[slot] < expiresAt[target]) {
+                    target = slot;
+                }
+            }
+            if (keys[target] != EMPTY && keys[target] != key && expiresAt[target] > now) {
+                evictions.increment();
+            }
+            keys[target] = key;
+            expiresAt[target] = now + ttlMillis;
+            verdicts[target] = similar ? SIMILAR : DIFFERENT;
+        }
+    }
+
+    public int size() {
+        var now = System.currentTimeMillis();
+        var live = 0;
+        for (var slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY && expiresAt[slot] > now) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long footprintBytes() {
+        return (long) keys.length * BYTES_PER_ENTRY;
+    }
+
+    public double hitRatio() {
+        var total = hits.sum() + misses.sum();
+        return total == 0 ? 0.0 : (double) hits.sum() / total;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("grouping.verdict.cache.hits", hits, LongAdder::sum)
+                .description("Similarity verdicts served from cache")
+                .register(registry);
+        FunctionCounter.builder("grouping.verdict.cache.misses", misses, LongAdder::sum)
+                .description("Similarity verdicts that required an LLM call")
+                .register(registry);
+        FunctionCounter.builder("grouping.verdict.cache.evictions", evictions, LongAdder::sum)
+                .description("Live verdicts replaced because their set was full")
+                .register(registry);
+        Gauge.builder("grouping.verdict.cache.hit.ratio", this, SimilarityVerdictCache::hitRatio)
+                .register(registry);
+        Gauge.builder("grouping.verdict.cache.size", this, SimilarityVerdictCache::size)
+                .register(registry);
+        Gauge.builder("grouping.verdict.cache.memory", this, SimilarityVerdictCache::footprintBytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private int setOf(long key) {
+        return (int) (TicketFingerprint.mix(key) & setMask);
+    }
+
+    private static long nonEmpty(long key) {
+        return key == EMPTY ? 1L : key;
+    }
+}
@@ -0,0 +1,74 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+import com.axelfrache.signalbroker.model.kafka.LabeledTicketEvent;
+
+import java.time.Instant;
+
+public class TicketGroup {
+
+    private final long commonId;
+    private final LabeledTicketEvent representative;
+    private final int[] signature;
+    private final long fingerprint;
+    private float[] centroid;
+    private int size;
+    private Instant lastActivity;
+
+    public TicketGroup(long commonId, LabeledTicketEvent representative, float[] embedding, int[] signature) {
+        this(commonId, representative, embedding, signature, 1, Instant.now());
+    }
+
+    public TicketGroup(long commonId, LabeledTicketEvent representative, float[] centroid, int[] signature,
+            int size, Instant lastActivity) {
+        this.commonId = commonId;
+        this.representative = representative;
+        this.signature = signature;
+        this.fingerprint = TicketFingerprint.of(representative.body());
+        this.centroid = centroid != null ? centroid.clone() : null;
+        this.size = size;
+        this.lastActivity = lastActivity != null ? lastActivity : Instant.now();
+    }
+
+    public long commonId() {
+        return commonId;
+    }
+
+    public LabeledTicketEvent representative() {
+        return representative;
+    }
+
+    public int[] signature() {
+        return signature;
+    }
+
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    public synchronized float[] centroid() {
+        return centroid != null ? centroid.clone() : null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized Instant lastActivity() {
+        return lastActivity;
+    }
+
+    public synchronized void addTicket(float[] embedding) {
+        size++;
+        lastActivity = Instant.now();
+        if (embedding == null) {
+            return;
+        }
+        if (centroid == null || centroid.length != embedding.length) {
+            centroid = embedding.clone();
+            return;
+        }
+        for (var i = 0; i < centroid.length; i++) {
+            centroid[i] += (embedding[i] - centroid[i]) / size;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordDeserializationException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Reads a compacted topic from the beginning on every partition without a consumer group: {@link #replay}
+ * blocks until the end offsets seen at startup are reached (or the timeout expires), then {@link #follow}
+ * keeps applying new records on a daemon thread until {@link #stop}.
+ */
+@Slf4j
+public class CompactedTopicTailer<V> {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(200);
+
+    private final ConsumerFactory<String, V> consumerFactory;
+    private final String topic;
+    private final String name;
+    private final RecordHandler<V> handler;
+
+    private volatile boolean running;
+    private Consumer<String, V> consumer;
+    private Thread follower;
+
+    public CompactedTopicTailer(ConsumerFactory<String, V> consumerFactory, String topic, String name,
+            RecordHandler<V> handler) {
+        this.consumerFactory = consumerFactory;
+        this.topic = topic;
+        this.name = name;
+        this.handler = handler;
+    }
+
+    public void replay(long timeoutMs) {
+        consumer = consumerFactory.createConsumer();
+        var partitions = consumer.partitionsFor(topic).stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .toList();
+        consumer.assign(partitions);
+        consumer.seekToBeginning(partitions);
+
+        var startedAt = System.nanoTime();
+        var deadline = startedAt + Duration.ofMillis(timeoutMs).toNanos();
+        var endOffsets = consumer.endOffsets(partitions);
+        var restored = 0;
+
+        while (!caughtUp(endOffsets) && System.nanoTime() < deadline) {
+            restored += pollOnce(true);
+        }
+
+        log.info("Restored {} {} records from {} in {} ms{}", restored, name, topic,
+                Duration.ofNanos(System.nanoTime() - startedAt).toMillis(),
+                caughtUp(endOffsets) ? "" : " (replay timeout reached, catching up in background)");
+    }
+
+    public void follow() {
+        running = true;
+        follower = Thread.ofPlatform().daemon().name(name + "-follower").start(this::run);
+    }
+
+    public void stop() {
+        running = false;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+        if (follower != null) {
+            try {
+                follower.join(Duration.ofSeconds(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                pollOnce(false);
+            }
+        } catch (WakeupException e) {
+            if (running) {
+                throw e;
+            }
+        } catch (Exception e) {
+            log.error("{} follower stopped", name, e);
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private int pollOnce(boolean replaying) {
+        try {
+            var records = consumer.poll(POLL_TIMEOUT);
+            for (var record : records) {
+                handler.apply(record, replaying);
+            }
+            return records.count();
+        } catch (RecordDeserializationException e) {
+            log.warn("Skipping unreadable {} record at {}@{}", name, e.topicPartition(), e.offset());
+            consumer.seek(e.topicPartition(), e.offset() + 1);
+            return 0;
+        }
+    }
+
+    private boolean caughtUp(Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .allMatch(entry -> consumer.position(entry.getKey()) >= entry.getValue());
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler<V> {
+
+        void apply(ConsumerRecord<String, V> record, boolean replaying);
+    }
+}
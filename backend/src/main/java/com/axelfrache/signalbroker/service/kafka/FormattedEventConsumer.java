@@ -1,53 +1,179 @@
 package com.axelfrache.signalbroker.service.kafka;
 
-import com.axelfrache.signalbroker.model.enums.ProcessingStage;
-import com.axelfrache.signalbroker.model.kafka.DlqEvent;
+import com.axelfrache.signalbroker.config.KafkaConfig;
+import com.axelfrache.signalbroker.config.properties.LabelingProperties;
+import com.axelfrache.signalbroker.model.enums.Priority;
 import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.model.kafka.LabeledTicketEvent;
 
 import com.axelfrache.signalbroker.service.EventPublisher;
 import com.axelfrache.signalbroker.service.LabelingService;
-import lombok.RequiredArgsConstructor;
+import com.axelfrache.signalbroker.service.labeling.LabelingScheduler;
+import com.axelfrache.signalbroker.service.labeling.UrgencyEstimator;
+import com.axelfrache.signalbroker.service.llm.OllamaCircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
+import org.springframework.util.backoff.BackOffExecution;
 
-import java.time.Instant;
-import java.util.Map;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class FormattedEventConsumer {
 
+    public static final String LISTENER_ID = "labeler";
+
     private final LabelingService labelingService;
     private final EventPublisher eventPublisher;
+    private final LabelingProperties labelingProperties;
+    private final OllamaCircuitBreaker circuitBreaker;
+    private final LabelingScheduler scheduler;
+    private final UrgencyEstimator urgencyEstimator;
+    private final LabelRetryRouter retryRouter;
+    private final LabelerPauseController pauseController;
+    private final InFlightLimiter inFlight;
+    private final KeyOrderedExecutor keyOrdered = new KeyOrderedExecutor();
+    private final AtomicInteger backlog = new AtomicInteger();
+
+    public FormattedEventConsumer(LabelingService labelingService, EventPublisher eventPublisher,
+            LabelingProperties labelingProperties, OllamaCircuitBreaker circuitBreaker,
+            LabelingScheduler scheduler, UrgencyEstimator urgencyEstimator, LabelRetryRouter retryRouter,
+            LabelerPauseController pauseController) {
+        this.labelingService = labelingService;
+        this.eventPublisher = eventPublisher;
+        this.labelingProperties = labelingProperties;
+        this.circuitBreaker = circuitBreaker;
+        this.scheduler = scheduler;
+        this.urgencyEstimator = urgencyEstimator;
+        this.retryRouter = retryRouter;
+        this.pauseController = pauseController;
+        this.inFlight = new InFlightLimiter(labelingProperties.maxInFlight());
+    }
 
-    @KafkaListener(topics = "${kafka.topics.formatted}", groupId = "${kafka.groups.labeler}", containerFactory = "formattedKafkaListenerContainerFactory")
+    @KafkaListener(id = LISTENER_ID, topics = "${kafka.topics.formatted}", groupId = "${kafka.groups.labeler}", containerFactory = "formattedKafkaListenerContainerFactory")
     public void onFormatted(@lombok.NonNull FormattedTicketEvent formatted, @lombok.NonNull Acknowledgment ack) {
+        if (labelingProperties.mode() == LabelingProperties.Mode.ASYNC) {
+            admit(labelingProperties.maxInFlight() + labelingProperties.maxQueued(), () -> ordered(formatted, ack));
+            return;
+        }
+        if (labelingProperties.mode() == LabelingProperties.Mode.PRIORITY) {
+            var priority = urgencyEstimator.estimate(formatted);
+            admit(labelingProperties.maxInFlight() + labelingProperties.scheduler().capacity(), () -> {
+                var done = new CompletableFuture<Void>();
+                scheduler.submit(priority, () -> labelScheduled(formatted, ack, priority, done));
+                return done;
+            });
+            return;
+        }
+
+        LabeledTicketEvent labeled = null;
+        Exception error = null;
+        try {
+            labeled = labelingService.label(formatted);
+        } catch (Exception e) {
+            if (circuitBreaker.shouldDefer(e)) {
+                log.warn("Ollama unavailable, redelivering ticket {} later", formatted.ticketId());
+                ack.nack(Duration.ofMillis(circuitBreaker.retryDelayMs()));
+                return;
+            }
+            error = e;
+        }
+        publishOutcome(formatted, labeled, error).join();
+        ack.acknowledge();
+    }
+
+    // Never blocks the poll thread: once the backlog reaches its bound the container is paused, and
+    // pauseImmediate hands the rest of the poll back to Kafka until labeling catches up
+    private void admit(int limit, Supplier<CompletableFuture<Void>> ticket) {
+        if (backlog.incrementAndGet() >= limit) {
+            pauseController.saturated(true);
+        }
+        ticket.get().whenComplete((ignored, e) -> {
+            if (backlog.decrementAndGet() < limit) {
+                pauseController.saturated(false);
+            }
+        });
+    }
+
+    // Permits are taken per labeling attempt inside labelAsync, so tickets queued behind a busy contact
+    // or waiting out an Ollama outage do not hold slots other tickets could use
+    private CompletableFuture<Void> ordered(FormattedTicketEvent formatted, Acknowledgment ack) {
+        return labelingProperties.ordering() == LabelingProperties.Ordering.CONTACT
+                ? keyOrdered.submit(formatted.contact(), () -> labelAsync(formatted, ack))
+                : labelAsync(formatted, ack);
+    }
+
+    private CompletableFuture<Void> labelAsync(FormattedTicketEvent formatted, Acknowledgment ack) {
+        return inFlight.submit(() -> attempt(formatted, ack)).thenCompose(deferred -> deferred
+                ? CompletableFuture.runAsync(() -> { },
+                                CompletableFuture.delayedExecutor(circuitBreaker.retryDelayMs(), TimeUnit.MILLISECONDS))
+                        .thenCompose(ignored -> labelAsync(formatted, ack))
+                : CompletableFuture.completedFuture(null));
+    }
+
+    private CompletableFuture<Boolean> attempt(FormattedTicketEvent formatted, Acknowledgment ack) {
+        return labelingService.labelAsync(formatted).handle((labeled, e) -> {
+            if (e != null && circuitBreaker.shouldDefer(e)) {
+                log.warn("Ollama unavailable, retrying ticket {} later", formatted.ticketId());
+                return CompletableFuture.completedFuture(true);
+            }
+            return deliver(formatted, labeled, e, ack).thenApply(ignored -> false);
+        }).thenCompose(outcome -> outcome);
+    }
+
+    private void labelScheduled(FormattedTicketEvent formatted, Acknowledgment ack, Priority priority,
+            CompletableFuture<Void> done) {
+        LabeledTicketEvent labeled = null;
+        Exception error = null;
         try {
-            var labeled = labelingService.label(formatted);
-            eventPublisher.publishLabeled(labeled);
+            labeled = labelingService.label(formatted);
         } catch (Exception e) {
-            eventPublisher.publishLabelDlq(buildDlqEvent(formatted, e));
-        } finally {
-            ack.acknowledge();
+            if (circuitBreaker.shouldDefer(e)) {
+                log.warn("Ollama unavailable, requeueing ticket {} later", formatted.ticketId());
+                scheduler.resubmit(priority, () -> labelScheduled(formatted, ack, priority, done),
+                        circuitBreaker.retryDelayMs());
+                return;
+            }
+            error = e;
         }
+        deliver(formatted, labeled, error, ack).whenComplete((ignored, e) -> done.complete(null));
+    }
+
+    private CompletableFuture<Void> publishOutcome(FormattedTicketEvent formatted, LabeledTicketEvent labeled,
+            Throwable e) {
+        try {
+            if (e != null) {
+                return retryRouter.failed(formatted, e, 1);
+            }
+            return eventPublisher.publishLabeled(labeled)
+                    .exceptionallyCompose(publishError -> retryRouter.failed(formatted, publishError, 1));
+        } catch (Exception publishError) {
+            return CompletableFuture.failedFuture(publishError);
+        }
+    }
+
+    // The offset is only committed once the outcome is on a topic; a failed send is retried with the
+    // same back-off as the raw listeners instead of acknowledging a ticket nobody received
+    private CompletableFuture<Void> deliver(FormattedTicketEvent formatted, LabeledTicketEvent labeled, Throwable e,
+            Acknowledgment ack) {
+        return deliver(formatted, labeled, e, KafkaConfig.sendRetryBackOff().start()).thenRun(ack::acknowledge);
     }
 
-    private DlqEvent buildDlqEvent(@lombok.NonNull FormattedTicketEvent formatted, @lombok.NonNull Exception e) {
-        var snippet = formatted.body() != null && formatted.body().length() > 200
-                ? formatted.body().substring(0, 200) + "..."
-                : formatted.body();
-
-        return new DlqEvent(
-                UUID.randomUUID(),
-                ProcessingStage.LABEL,
-                formatted.channel().name().toLowerCase() + ".formatted",
-                e.getMessage(),
-                snippet,
-                Instant.now(),
-                Map.of("ticketId", formatted.ticketId() != null ? formatted.ticketId().toString() : "unknown",
-                        "contact", formatted.contact() != null ? formatted.contact() : "unknown"),
-                1);
+    private CompletableFuture<Void> deliver(FormattedTicketEvent formatted, LabeledTicketEvent labeled, Throwable e,
+            BackOffExecution backOff) {
+        return publishOutcome(formatted, labeled, e).exceptionallyCompose(publishError -> {
+            var delayMs = backOff.nextBackOff();
+            log.error("Failed to publish labeling outcome for ticket {}, retrying in {} ms", formatted.ticketId(),
+                    delayMs, publishError);
+            return CompletableFuture.runAsync(() -> { },
+                            CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> deliver(formatted, labeled, e, backOff));
+        });
     }
 }
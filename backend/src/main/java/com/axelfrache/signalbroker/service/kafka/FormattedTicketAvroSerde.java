@@ -0,0 +1,136 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Avro encoding of {@link FormattedTicketEvent} for the internal formatted and retry topics. Events
+ * are mapped to a {@link GenericRecord} and written by the Confluent Avro serializer, which registers
+ * the schema once and then reuses the cached id; ticket ids are 16-byte fixed values and timestamps
+ * epoch microseconds. The deserializer also reads JSON records, so producers can switch format while
+ * older records are still on the topic.
+ */
+public class FormattedTicketAvroSerde implements Serde<FormattedTicketEvent> {
+
+    public static final Schema SCHEMA = loadSchema();
+
+    private static final byte MAGIC_BYTE = 0;
+
+    private final KafkaAvroSerializer avroSerializer = new KafkaAvroSerializer();
+    private final KafkaAvroDeserializer avroDeserializer = new KafkaAvroDeserializer();
+
+    public FormattedTicketAvroSerde(String schemaRegistryUrl) {
+        Map<String, Object> config = Map.of(
+                "schema.registry.url", schemaRegistryUrl,
+                "auto.register.schemas", true);
+        avroSerializer.configure(config, false);
+        avroDeserializer.configure(config, false);
+    }
+
+    @Override
+    public Serializer<FormattedTicketEvent> serializer() {
+        return (topic, event) -> event == null ? null : avroSerializer.serialize(topic, toRecord(event));
+    }
+
+    @Override
+    public Deserializer<FormattedTicketEvent> deserializer() {
+        return (topic, data) -> data == null
+                ? null
+                : fromRecord((GenericRecord) avroDeserializer.deserialize(topic, data));
+    }
+
+    /**
+     * Reads Avro records and hands anything else, i.e. JSON written before the switch, to {@code json}.
+     */
+    public Deserializer<FormattedTicketEvent> deserializer(Deserializer<FormattedTicketEvent> json) {
+        var avro = deserializer();
+        return new Deserializer<>() {
+
+            @Override
+            public FormattedTicketEvent deserialize(String topic, byte[] data) {
+                return isAvro(data) ? avro.deserialize(topic, data) : json.deserialize(topic, data);
+            }
+
+            @Override
+            public FormattedTicketEvent deserialize(String topic, Headers headers, byte[] data) {
+                return isAvro(data) ? avro.deserialize(topic, data) : json.deserialize(topic, headers, data);
+            }
+
+            @Override
+            public void close() {
+                json.close();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        avroSerializer.close();
+        avroDeserializer.close();
+    }
+
+    static GenericRecord toRecord(FormattedTicketEvent event) {
+        var uuid = ByteBuffer.allocate(16)
+                .putLong(event.ticketId().getMostSignificantBits())
+                .putLong(event.ticketId().getLeastSignificantBits())
+                .array();
+        var record = new GenericData.Record(SCHEMA);
+        record.put("ticketId", new GenericData.Fixed(SCHEMA.getField("ticketId").schema(), uuid));
+        record.put("channel", new GenericData.EnumSymbol(SCHEMA.getField("channel").schema(), event.channel().name()));
+        record.put("receivedAt", toMicros(event.receivedAt()));
+        record.put("createdAt", toMicros(event.createdAt()));
+        record.put("body", event.body());
+        record.put("contact", event.contact());
+        record.put("schemaVersion", event.schemaVersion());
+        return record;
+    }
+
+    static FormattedTicketEvent fromRecord(GenericRecord record) {
+        var uuid = ByteBuffer.wrap(((GenericData.Fixed) record.get("ticketId")).bytes());
+        return new FormattedTicketEvent(
+                new UUID(uuid.getLong(), uuid.getLong()),
+                ChannelType.valueOf(record.get("channel").toString()),
+                fromMicros((Long) record.get("receivedAt")),
+                fromMicros((Long) record.get("createdAt")),
+                record.get("body").toString(),
+                record.get("contact").toString(),
+                (Integer) record.get("schemaVersion"));
+    }
+
+    private static boolean isAvro(byte[] data) {
+        return data != null && data.length > 5 && data[0] == MAGIC_BYTE;
+    }
+
+    private static long toMicros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    private static Instant fromMicros(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+
+    private static Schema loadSchema() {
+        try (var in = FormattedTicketAvroSerde.class.getResourceAsStream("/avro/formatted-ticket-event.avsc")) {
+            return new Schema.Parser().parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
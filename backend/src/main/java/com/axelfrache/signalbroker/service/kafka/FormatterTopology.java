@@ -0,0 +1,81 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import com.axelfrache.signalbroker.model.kafka.DlqEvent;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.model.kafka.RawInboundEvent;
+import com.axelfrache.signalbroker.service.FormattingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Branched;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.support.serializer.JsonSerde;
+import org.springframework.stereotype.Component;
+
+/**
+ * Kafka Streams version of the raw to formatted hop. Each raw record is formatted with the same
+ * {@link FormattingService} as the listeners and written either to the formatted topic or to its
+ * channel DLQ; with exactly-once processing the output and the input offset commit in one transaction.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "kafka.streams.formatter", havingValue = "true")
+public class FormatterTopology {
+
+    private final FormattingService formattingService;
+    private final KafkaAppProperties kafkaProperties;
+    private final ObjectMapper mapper;
+    private final FormattedTicketAvroSerde avroSerde;
+
+    @Autowired
+    public void build(StreamsBuilder builder) {
+        var topics = kafkaProperties.topics();
+        route(builder, topics.whatsapp());
+        route(builder, topics.mail());
+    }
+
+    private void route(StreamsBuilder builder, KafkaAppProperties.ChannelTopics channel) {
+        builder.stream(channel.raw(), Consumed.with(Serdes.String(), jsonSerde(RawInboundEvent.class)))
+                .filter((key, raw) -> raw != null)
+                .mapValues(raw -> format(raw, channel.raw()))
+                .split()
+                .branch((key, outcome) -> outcome.formatted() != null, Branched.withConsumer(formatted -> formatted
+                        .map((key, outcome) -> KeyValue.pair(outcome.formatted().ticketId().toString(),
+                                outcome.formatted()))
+                        .to(kafkaProperties.topics().formatted(),
+                                Produced.with(Serdes.String(), formattedSerde()))))
+                .defaultBranch(Branched.withConsumer(failed -> failed
+                        .map((key, outcome) -> KeyValue.pair(outcome.dlq().eventId().toString(), outcome.dlq()))
+                        .to(channel.formatDlq(), Produced.with(Serdes.String(), jsonSerde(DlqEvent.class)))));
+    }
+
+    private Outcome format(RawInboundEvent raw, String sourceTopic) {
+        try {
+            return new Outcome(formattingService.format(raw), null);
+        } catch (Exception e) {
+            return new Outcome(null, RawEventConsumer.buildDlqEvent(raw, sourceTopic, e, mapper));
+        }
+    }
+
+    private Serde<FormattedTicketEvent> formattedSerde() {
+        return kafkaProperties.serialization().formatted() == KafkaAppProperties.Serialization.Format.AVRO
+                ? avroSerde
+                : jsonSerde(FormattedTicketEvent.class);
+    }
+
+    private <T> JsonSerde<T> jsonSerde(Class<T> type) {
+        var serde = new JsonSerde<>(type, mapper);
+        serde.deserializer().addTrustedPackages("com.axelfrache.signalbroker.*");
+        return serde;
+    }
+
+    private record Outcome(FormattedTicketEvent formatted, DlqEvent dlq) {
+    }
+}
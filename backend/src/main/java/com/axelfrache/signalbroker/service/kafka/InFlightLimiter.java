@@ -0,0 +1,75 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of a semaphore for asynchronous tasks: at most {@code limit} tasks run at
+ * once and the others wait in FIFO order without holding a thread. A slot is freed when the task's
+ * future completes, successfully or not.
+ */
+public class InFlightLimiter {
+
+    private final int limit;
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+    private int running;
+
+    public InFlightLimiter(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        this.limit = limit;
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+        var done = new CompletableFuture<T>();
+        Runnable start = () -> run(task, done);
+        synchronized (this) {
+            if (running >= limit) {
+                waiting.add(start);
+                return done;
+            }
+            running++;
+        }
+        start.run();
+        return done;
+    }
+
+    public synchronized int running() {
+        return running;
+    }
+
+    public synchronized int waiting() {
+        return waiting.size();
+    }
+
+    private <T> void run(Supplier<CompletableFuture<T>> task, CompletableFuture<T> done) {
+        start(task).whenComplete((result, e) -> {
+            Runnable next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    running--;
+                }
+            }
+            if (e != null) {
+                done.completeExceptionally(e);
+            } else {
+                done.complete(result);
+            }
+            if (next != null) {
+                next.run();
+            }
+        });
+    }
+
+    private static <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> task) {
+        try {
+            return task.get();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
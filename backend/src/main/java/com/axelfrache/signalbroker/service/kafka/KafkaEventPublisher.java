@@ -6,53 +6,150 @@ import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
 import com.axelfrache.signalbroker.model.kafka.LabeledTicketEvent;
 import com.axelfrache.signalbroker.model.kafka.RawInboundEvent;
 import com.axelfrache.signalbroker.service.EventPublisher;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.TimeoutException;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class KafkaEventPublisher implements EventPublisher {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
 
     private final KafkaTemplate<String, Object> schemaRegistryKafkaTemplate;
     private final KafkaAppProperties kafkaProperties;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore inFlight;
+
+    public KafkaEventPublisher(KafkaTemplate<String, Object> kafkaTemplate,
+            KafkaTemplate<String, Object> schemaRegistryKafkaTemplate, KafkaAppProperties kafkaProperties,
+            MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.schemaRegistryKafkaTemplate = schemaRegistryKafkaTemplate;
+        this.kafkaProperties = kafkaProperties;
+        this.meterRegistry = meterRegistry;
+        var window = kafkaProperties.producer().maxInFlightSends();
+        this.inFlight = new Semaphore(window);
+        Gauge.builder("kafka.publish.in.flight", inFlight, permits -> window - permits.availablePermits())
+                .description("Sends awaiting a broker acknowledgment")
+                .register(meterRegistry);
+    }
 
     @Override
-    public void publishWhatsappRaw(@lombok.NonNull RawInboundEvent event) {
+    public CompletableFuture<Void> publishWhatsappRaw(@lombok.NonNull RawInboundEvent event) {
         var key = event.contact() != null ? event.contact() : event.sourceMessageId();
-        kafkaTemplate.send(kafkaProperties.topics().whatsapp().raw(), key, event);
+        return send(kafkaTemplate, new ProducerRecord<>(kafkaProperties.topics().whatsapp().raw(), key, event));
     }
 
     @Override
-    public void publishMailRaw(@lombok.NonNull RawInboundEvent event) {
+    public CompletableFuture<Void> publishMailRaw(@lombok.NonNull RawInboundEvent event) {
         var key = event.contact() != null ? event.contact() : event.sourceMessageId();
-        kafkaTemplate.send(kafkaProperties.topics().mail().raw(), key, event);
+        return send(kafkaTemplate, new ProducerRecord<>(kafkaProperties.topics().mail().raw(), key, event));
     }
 
     @Override
-    public void publishFormatted(@lombok.NonNull FormattedTicketEvent event) {
-        kafkaTemplate.send(kafkaProperties.topics().formatted(), event.ticketId().toString(), event);
+    public CompletableFuture<Void> publishFormatted(@lombok.NonNull FormattedTicketEvent event) {
+        return send(kafkaTemplate,
+                new ProducerRecord<>(kafkaProperties.topics().formatted(), event.ticketId().toString(), event));
     }
 
     @Override
-    public void publishLabeled(@lombok.NonNull LabeledTicketEvent event) {
-        schemaRegistryKafkaTemplate.send(kafkaProperties.topics().labeled(), event.ticketId().toString(), event);
+    public CompletableFuture<Void> publishLabeled(@lombok.NonNull LabeledTicketEvent event) {
+        return send(schemaRegistryKafkaTemplate,
+                new ProducerRecord<>(kafkaProperties.topics().labeled(), event.ticketId().toString(), event));
     }
 
     @Override
-    public void publishWhatsappFormatDlq(@lombok.NonNull DlqEvent event) {
-        kafkaTemplate.send(kafkaProperties.topics().whatsapp().formatDlq(), event.eventId().toString(), event);
+    public CompletableFuture<Void> publishWhatsappFormatDlq(@lombok.NonNull DlqEvent event) {
+        return send(kafkaTemplate, new ProducerRecord<>(kafkaProperties.topics().whatsapp().formatDlq(),
+                event.eventId().toString(), event));
     }
 
     @Override
-    public void publishMailFormatDlq(@lombok.NonNull DlqEvent event) {
-        kafkaTemplate.send(kafkaProperties.topics().mail().formatDlq(), event.eventId().toString(), event);
+    public CompletableFuture<Void> publishMailFormatDlq(@lombok.NonNull DlqEvent event) {
+        return send(kafkaTemplate, new ProducerRecord<>(kafkaProperties.topics().mail().formatDlq(),
+                event.eventId().toString(), event));
     }
 
     @Override
-    public void publishLabelDlq(@lombok.NonNull DlqEvent event) {
-        kafkaTemplate.send(kafkaProperties.topics().labelDlq(), event.eventId().toString(), event);
+    public CompletableFuture<Void> publishLabelRetry(@lombok.NonNull FormattedTicketEvent event, int attempt,
+            long delayMs, String reason) {
+        var record = new ProducerRecord<String, Object>(
+                kafkaProperties.topics().labelRetry() + "-" + attempt, event.ticketId().toString(), event);
+        record.headers()
+                .add(LabelRetryConsumer.ATTEMPT_HEADER, Integer.toString(attempt).getBytes(StandardCharsets.UTF_8))
+                .add(LabelRetryConsumer.RETRY_AT_HEADER,
+                        Long.toString(System.currentTimeMillis() + delayMs).getBytes(StandardCharsets.UTF_8));
+        if (reason != null) {
+            record.headers().add(LabelRetryConsumer.REASON_HEADER, reason.getBytes(StandardCharsets.UTF_8));
+        }
+        return send(kafkaTemplate, record);
+    }
+
+    @Override
+    public CompletableFuture<Void> publishLabelDlq(@lombok.NonNull DlqEvent event) {
+        return send(kafkaTemplate,
+                new ProducerRecord<>(kafkaProperties.topics().labelDlq(), event.eventId().toString(), event));
+    }
+
+    private CompletableFuture<Void> send(KafkaTemplate<String, Object> template, ProducerRecord<String, Object> record) {
+        var topic = record.topic();
+        try {
+            if (!inFlight.tryAcquire(kafkaProperties.producer().maxBlockMs(), TimeUnit.MILLISECONDS)) {
+                errors(topic).increment();
+                return CompletableFuture.failedFuture(
+                        new TimeoutException("Too many in-flight sends, gave up publishing to " + topic));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        var startedAt = System.nanoTime();
+        try {
+            return template.send(record).handle((result, e) -> {
+                inFlight.release();
+                latency(topic, e == null ? "success" : "error").record(System.nanoTime() - startedAt,
+                        TimeUnit.NANOSECONDS);
+                if (e != null) {
+                    errors(topic).increment();
+                    log.warn("Failed to publish to {}: {}", topic, e.getMessage());
+                    throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            inFlight.release();
+            errors(topic).increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Timer latency(String topic, String outcome) {
+        return Timer.builder("kafka.publish.latency")
+                .description("Time from send to broker acknowledgment")
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    private Counter errors(String topic) {
+        return Counter.builder("kafka.publish.errors")
+                .description("Sends that failed or could not enter the in-flight window")
+                .tag("topic", topic)
+                .register(meterRegistry);
     }
 }
@@ -0,0 +1,51 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Runs asynchronous tasks concurrently across keys but one at a time per key, in submission order:
+ * each task starts once the previous task for its key has completed, successfully or not. Only keys
+ * with pending work are tracked.
+ */
+public class KeyOrderedExecutor {
+
+    private final Map<String, CompletableFuture<Void>> tails = new HashMap<>();
+
+    public CompletableFuture<Void> submit(String key, Supplier<CompletableFuture<Void>> task) {
+        var done = new CompletableFuture<Void>();
+        CompletableFuture<Void> previous;
+        synchronized (tails) {
+            previous = tails.put(key, done);
+        }
+
+        var ready = previous != null ? previous : CompletableFuture.<Void>completedFuture(null);
+        ready.whenComplete((ignored, previousError) -> start(task).whenComplete((result, e) -> {
+            synchronized (tails) {
+                tails.remove(key, done);
+            }
+            if (e != null) {
+                done.completeExceptionally(e);
+            } else {
+                done.complete(null);
+            }
+        }));
+        return done;
+    }
+
+    public int pendingKeys() {
+        synchronized (tails) {
+            return tails.size();
+        }
+    }
+
+    private static CompletableFuture<Void> start(Supplier<CompletableFuture<Void>> task) {
+        try {
+            return task.get();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.service.EventPublisher;
+import com.axelfrache.signalbroker.service.LabelingService;
+import com.axelfrache.signalbroker.service.llm.OllamaCircuitBreaker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.MethodKafkaListenerEndpoint;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+import org.springframework.messaging.handler.annotation.support.MessageHandlerMethodFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Delayed consumers for the label retry tiers. Each configured delay gets its own endpoint and container
+ * (see {@link #endpoint}) in a consumer group separate from the main labeler, and a tier topic only holds
+ * records published with that tier's delay, so the head record is always the next one due: the container
+ * is paused with {@code nack} until then without holding back other tiers or the main topic.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "labeling.retry.enabled", havingValue = "true")
+public class LabelRetryConsumer {
+
+    public static final String ATTEMPT_HEADER = "x-retry-attempt";
+    public static final String RETRY_AT_HEADER = "x-retry-at";
+    public static final String REASON_HEADER = "x-retry-reason";
+
+    private static final long MAX_PAUSE_MS = 30_000;
+    private static final Method RETRY_METHOD = ReflectionUtils.findMethod(LabelRetryConsumer.class, "retry",
+            ConsumerRecord.class, Acknowledgment.class);
+    private static final MessageHandlerMethodFactory HANDLER_METHOD_FACTORY = handlerMethodFactory();
+
+    private final LabelingService labelingService;
+    private final EventPublisher eventPublisher;
+    private final OllamaCircuitBreaker circuitBreaker;
+    private final LabelRetryRouter retryRouter;
+
+    public MethodKafkaListenerEndpoint<String, FormattedTicketEvent> endpoint(String topicPrefix, String groupId,
+            int tier) {
+        var endpoint = new MethodKafkaListenerEndpoint<String, FormattedTicketEvent>();
+        endpoint.setId("label-retry-" + tier);
+        endpoint.setGroupId(groupId);
+        endpoint.setTopics(topicPrefix + "-" + tier);
+        endpoint.setBean(this);
+        endpoint.setMethod(RETRY_METHOD);
+        endpoint.setMessageHandlerMethodFactory(HANDLER_METHOD_FACTORY);
+        return endpoint;
+    }
+
+    void retry(ConsumerRecord<String, FormattedTicketEvent> record, Acknowledgment ack) {
+        var wait = header(record, RETRY_AT_HEADER, 0L) - System.currentTimeMillis();
+        if (wait > 0) {
+            ack.nack(Duration.ofMillis(Math.min(wait, MAX_PAUSE_MS)));
+            return;
+        }
+
+        var formatted = record.value();
+        var attempt = (int) header(record, ATTEMPT_HEADER, 1L);
+        try {
+            eventPublisher.publishLabeled(labelingService.label(formatted)).join();
+            retryRouter.recovered(attempt);
+            log.info("Ticket {} labeled on retry {}", formatted.ticketId(), attempt);
+        } catch (Exception e) {
+            if (circuitBreaker.shouldDefer(e)) {
+                ack.nack(Duration.ofMillis(circuitBreaker.retryDelayMs()));
+                return;
+            }
+            retryRouter.failed(formatted, e, attempt + 1).join();
+        }
+        ack.acknowledge();
+    }
+
+    private static MessageHandlerMethodFactory handlerMethodFactory() {
+        var factory = new DefaultMessageHandlerMethodFactory();
+        factory.afterPropertiesSet();
+        return factory;
+    }
+
+    private static long header(ConsumerRecord<?, ?> record, String name, long defaultValue) {
+        var header = record.headers().lastHeader(name);
+        if (header == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
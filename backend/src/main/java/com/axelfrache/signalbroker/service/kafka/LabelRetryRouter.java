@@ -0,0 +1,101 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.config.properties.LabelingProperties;
+import com.axelfrache.signalbroker.model.enums.ProcessingStage;
+import com.axelfrache.signalbroker.model.kafka.DlqEvent;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.service.EventPublisher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+@Component
+public class LabelRetryRouter {
+
+    private final EventPublisher eventPublisher;
+    private final LabelingProperties labelingProperties;
+    private final ObjectMapper mapper;
+    private final MeterRegistry meterRegistry;
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public LabelRetryRouter(EventPublisher eventPublisher, LabelingProperties labelingProperties,
+            ObjectMapper mapper, MeterRegistry meterRegistry) {
+        this.eventPublisher = eventPublisher;
+        this.labelingProperties = labelingProperties;
+        this.mapper = mapper;
+        this.meterRegistry = meterRegistry;
+        FunctionCounter.builder("labeling.retry.exhausted", exhausted, LongAdder::sum)
+                .description("Tickets sent to the label DLQ after their last retry")
+                .register(meterRegistry);
+        Gauge.builder("labeling.retry.success.ratio", this, LabelRetryRouter::successRatio)
+                .description("Share of retried tickets eventually labeled")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Void> failed(FormattedTicketEvent formatted, Throwable e, int attempt) {
+        var delays = labelingProperties.retry().delaysMs();
+        if (labelingProperties.retry().enabled() && attempt <= delays.size()) {
+            log.warn("Labeling failed for ticket {} (attempt {}), retrying in {} ms",
+                    formatted.ticketId(), attempt, delays.get(attempt - 1));
+            counter("labeling.retry.scheduled", attempt).increment();
+            return eventPublisher.publishLabelRetry(formatted, attempt, delays.get(attempt - 1), e.getMessage())
+                    .exceptionallyCompose(publishError -> {
+                        log.error("Failed to schedule retry for ticket {}, sending it to the DLQ",
+                                formatted.ticketId(), publishError);
+                        return eventPublisher.publishLabelDlq(buildDlqEvent(formatted, e.getMessage(), attempt));
+                    });
+        }
+
+        if (attempt > 1) {
+            exhausted.increment();
+        }
+        return eventPublisher.publishLabelDlq(buildDlqEvent(formatted, e.getMessage(), attempt));
+    }
+
+    public void recovered(int tier) {
+        recovered.increment();
+        counter("labeling.retry.recovered", tier).increment();
+    }
+
+    public double successRatio() {
+        var total = recovered.sum() + exhausted.sum();
+        return total == 0 ? 0.0 : (double) recovered.sum() / total;
+    }
+
+    private Counter counter(String name, int tier) {
+        return Counter.builder(name)
+                .tag("tier", Integer.toString(tier))
+                .register(meterRegistry);
+    }
+
+    private DlqEvent buildDlqEvent(FormattedTicketEvent formatted, String reason, int attempt) {
+        var snippet = formatted.body() != null && formatted.body().length() > 200
+                ? formatted.body().substring(0, 200) + "..."
+                : formatted.body();
+
+        return new DlqEvent(
+                UUID.randomUUID(),
+                ProcessingStage.LABEL,
+                formatted.channel().name().toLowerCase() + ".formatted",
+                reason != null ? reason : "unknown error",
+                snippet,
+                mapper.valueToTree(formatted),
+                Instant.now(),
+                Map.of("ticketId", formatted.ticketId() != null ? formatted.ticketId().toString() : "unknown",
+                        "contact", formatted.contact() != null ? formatted.contact() : "unknown"),
+                attempt,
+                2);
+    }
+}
@@ -0,0 +1,52 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.service.llm.OllamaCircuitBreaker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LabelerPauseController {
+
+    private final KafkaListenerEndpointRegistry registry;
+
+    private boolean circuitOpen;
+    private boolean saturated;
+
+    @EventListener
+    public synchronized void onCircuitStateChanged(OllamaCircuitBreaker.StateChanged event) {
+        circuitOpen = event.state() == OllamaCircuitBreaker.State.OPEN;
+        if (circuitOpen) {
+            log.warn("Pausing labeler consumers while Ollama is unavailable");
+        }
+        apply("circuit " + event.state());
+    }
+
+    public synchronized void saturated(boolean saturated) {
+        if (this.saturated == saturated) {
+            return;
+        }
+        this.saturated = saturated;
+        if (saturated) {
+            log.info("Pausing labeler consumers until the labeling backlog drains");
+        }
+        apply("backlog drained");
+    }
+
+    private void apply(String reason) {
+        var container = registry.getListenerContainer(FormattedEventConsumer.LISTENER_ID);
+        if (container == null) {
+            return;
+        }
+        if (circuitOpen || saturated) {
+            container.pause();
+        } else if (container.isPauseRequested()) {
+            log.info("Resuming labeler consumers ({})", reason);
+            container.resume();
+        }
+    }
+}
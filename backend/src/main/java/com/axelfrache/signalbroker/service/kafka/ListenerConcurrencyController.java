@@ -0,0 +1,193 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resizes the formatter and labeler listener containers from their consumer-group lag. Each tick reads
+ * committed and end offsets, derives per-partition throughput from the committed-offset delta and moves
+ * concurrency one step towards draining the lag within the target time. Resizing restarts the
+ * container, so changes are spaced by a cooldown and capped at the partition count.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kafka.autoscaling.enabled", havingValue = "true")
+public class ListenerConcurrencyController {
+
+    private static final long ADMIN_TIMEOUT_MS = 5_000;
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final KafkaAppProperties kafkaProperties;
+    private final MeterRegistry meterRegistry;
+    private final Admin admin;
+    private final Map<String, ListenerStats> listeners = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, PartitionStats> partitions = new ConcurrentHashMap<>();
+
+    public ListenerConcurrencyController(KafkaListenerEndpointRegistry registry, KafkaAppProperties kafkaProperties,
+            KafkaAdmin kafkaAdmin, MeterRegistry meterRegistry) {
+        this.registry = registry;
+        this.kafkaProperties = kafkaProperties;
+        this.meterRegistry = meterRegistry;
+        this.admin = Admin.create(kafkaAdmin.getConfigurationProperties());
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.autoscaling.intervalMs}")
+    public void evaluate() {
+        var concurrency = kafkaProperties.concurrency();
+        evaluate(RawEventConsumer.WHATSAPP_LISTENER_ID, concurrency.formatter());
+        evaluate(RawEventConsumer.MAIL_LISTENER_ID, concurrency.formatter());
+        evaluate(FormattedEventConsumer.LISTENER_ID, concurrency.labeler());
+    }
+
+    private void evaluate(String listenerId, int minConcurrency) {
+        if (!(registry.getListenerContainer(listenerId) instanceof ConcurrentMessageListenerContainer<?, ?> container)
+                || !container.isRunning() || container.isPauseRequested()) {
+            return;
+        }
+        var stats = listeners.computeIfAbsent(listenerId, id -> new ListenerStats(id, container));
+        try {
+            sample(container, stats);
+        } catch (Exception e) {
+            log.warn("Could not read consumer lag for {}: {}", listenerId, e.getMessage());
+            return;
+        }
+        if (stats.throughput < 0) {
+            return;
+        }
+
+        var config = kafkaProperties.autoscaling();
+        var max = Math.max(minConcurrency, Math.min(config.maxConcurrency(), stats.partitionCount));
+        var current = container.getConcurrency();
+        var desired = desiredConcurrency(current, minConcurrency, max, stats.lag, stats.throughput, config);
+        var now = System.currentTimeMillis();
+        if (desired == current || now - stats.resizedAt < config.cooldownMs()) {
+            return;
+        }
+
+        log.info("Resizing {} from {} to {} consumers (lag={}, throughput={}/s)", listenerId, current, desired,
+                stats.lag, String.format("%.1f", stats.throughput));
+        stats.resizedAt = now;
+        container.stop(() -> Thread.ofVirtual().name("resize-" + listenerId).start(() -> {
+            container.setConcurrency(desired);
+            container.start();
+        }));
+    }
+
+    private void sample(ConcurrentMessageListenerContainer<?, ?> container, ListenerStats stats) throws Exception {
+        var topics = List.of(container.getContainerProperties().getTopics());
+        var committed = admin.listConsumerGroupOffsets(container.getGroupId())
+                .partitionsToOffsetAndMetadata()
+                .get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        var latest = new HashMap<TopicPartition, OffsetSpec>();
+        admin.describeTopics(topics).allTopicNames().get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .forEach((topic, description) -> description.partitions()
+                        .forEach(partition -> latest.put(new TopicPartition(topic, partition.partition()),
+                                OffsetSpec.latest())));
+        var endOffsets = admin.listOffsets(latest).all().get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        var now = System.nanoTime();
+        long lag = 0;
+        double throughput = 0;
+        var complete = true;
+        for (var entry : endOffsets.entrySet()) {
+            var partition = entry.getKey();
+            var offset = committed.get(partition);
+            var position = offset != null ? offset.offset() : entry.getValue().offset();
+            var partitionStats = partitions.computeIfAbsent(partition,
+                    tp -> new PartitionStats(tp, container.getGroupId()));
+            partitionStats.update(position, entry.getValue().offset(), now);
+            lag += partitionStats.lag;
+            throughput += Math.max(0, partitionStats.throughput);
+            complete &= partitionStats.throughput >= 0;
+        }
+        stats.partitionCount = endOffsets.size();
+        stats.lag = lag;
+        stats.throughput = complete ? throughput : -1;
+    }
+
+    static int desiredConcurrency(int current, int min, int max, long lag, double throughput,
+            KafkaAppProperties.Autoscaling config) {
+        var drainSeconds = throughput > 0 ? lag / throughput : lag > 0 ? Double.POSITIVE_INFINITY : 0;
+        if (lag >= config.scaleUpLag() && drainSeconds > config.targetDrainSeconds()) {
+            return Math.min(max, current + 1);
+        }
+        if (lag <= config.scaleDownLag()) {
+            return Math.max(min, current - 1);
+        }
+        return Math.clamp(current, min, max);
+    }
+
+    @PreDestroy
+    void close() {
+        admin.close();
+    }
+
+    private class ListenerStats {
+
+        private volatile long lag;
+        private volatile double throughput = -1;
+        private volatile int partitionCount;
+        private volatile long resizedAt;
+
+        ListenerStats(String listenerId, ConcurrentMessageListenerContainer<?, ?> container) {
+            Gauge.builder("kafka.listener.concurrency", container, ConcurrentMessageListenerContainer::getConcurrency)
+                    .description("Consumers currently configured for the listener")
+                    .tag("listener", listenerId)
+                    .register(meterRegistry);
+            Gauge.builder("kafka.listener.lag", this, stats -> stats.lag)
+                    .description("Records behind the end of the listener's topics")
+                    .tag("listener", listenerId)
+                    .register(meterRegistry);
+        }
+    }
+
+    private class PartitionStats {
+
+        private volatile long lag;
+        private volatile double throughput = -1;
+        private long position = -1;
+        private long sampledAt;
+
+        PartitionStats(TopicPartition partition, String groupId) {
+            Gauge.builder("kafka.consumer.lag", this, stats -> stats.lag)
+                    .description("Records between the committed offset and the end of the partition")
+                    .tag("group", groupId)
+                    .tag("topic", partition.topic())
+                    .tag("partition", Integer.toString(partition.partition()))
+                    .register(meterRegistry);
+            Gauge.builder("kafka.consumer.throughput", this, stats -> Math.max(0, stats.throughput))
+                    .description("Committed records per second")
+                    .tag("group", groupId)
+                    .tag("topic", partition.topic())
+                    .tag("partition", Integer.toString(partition.partition()))
+                    .register(meterRegistry);
+        }
+
+        void update(long committed, long end, long now) {
+            if (position >= 0 && now > sampledAt) {
+                throughput = Math.max(0, committed - position) * 1e9 / (now - sampledAt);
+            }
+            position = committed;
+            sampledAt = now;
+            lag = Math.max(0, end - committed);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import com.axelfrache.signalbroker.model.kafka.DlqEvent;
+import com.axelfrache.signalbroker.model.kafka.RawInboundEvent;
+import com.axelfrache.signalbroker.service.EventPublisher;
+import com.axelfrache.signalbroker.service.FormattingService;
+import com.axelfrache.signalbroker.service.dedupe.DedupeStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Formats a whole poll batch, fires every send without waiting, then waits once for all of them and
+ * commits the batch with a single acknowledgment. Records that fail to format go to their DLQ; a
+ * failed send is reported as a {@link BatchListenerFailedException} so the container commits the
+ * records before it and redelivers the rest.
+ */
+@Slf4j
+@Service
+@ConditionalOnExpression("${kafka.batch.formatter:false} and !${kafka.streams.formatter:false}")
+public class RawBatchEventConsumer {
+
+    private final FormattingService formattingService;
+    private final EventPublisher eventPublisher;
+    private final DedupeStore dedupeStore;
+    private final KafkaAppProperties kafkaProperties;
+    private final ObjectMapper mapper;
+    private final DistributionSummary batchSize;
+    private final Timer batchDuration;
+
+    public RawBatchEventConsumer(FormattingService formattingService, EventPublisher eventPublisher,
+            DedupeStore dedupeStore, KafkaAppProperties kafkaProperties, ObjectMapper mapper,
+            MeterRegistry meterRegistry) {
+        this.formattingService = formattingService;
+        this.eventPublisher = eventPublisher;
+        this.dedupeStore = dedupeStore;
+        this.kafkaProperties = kafkaProperties;
+        this.mapper = mapper;
+        this.batchSize = DistributionSummary.builder("formatter.batch.size")
+                .description("Raw records formatted per poll batch")
+                .register(meterRegistry);
+        this.batchDuration = Timer.builder("formatter.batch.duration")
+                .description("Time to format, publish and confirm a poll batch")
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(id = RawEventConsumer.WHATSAPP_LISTENER_ID, topics = "${kafka.topics.whatsapp.raw}", groupId = "${kafka.groups.formatter}", containerFactory = "rawKafkaListenerContainerFactory")
+    public void onWhatsappRaw(@lombok.NonNull List<RawInboundEvent> batch, @lombok.NonNull Acknowledgment ack) {
+        process(batch, "support.whatsapp.raw", eventPublisher::publishWhatsappFormatDlq);
+        ack.acknowledge();
+    }
+
+    @KafkaListener(id = RawEventConsumer.MAIL_LISTENER_ID, topics = "${kafka.topics.mail.raw}", groupId = "${kafka.groups.formatter}", containerFactory = "rawKafkaListenerContainerFactory")
+    public void onMailRaw(@lombok.NonNull List<RawInboundEvent> batch, @lombok.NonNull Acknowledgment ack) {
+        process(batch, "support.mail.raw", eventPublisher::publishMailFormatDlq);
+        ack.acknowledge();
+    }
+
+    void process(List<RawInboundEvent> batch, String sourceTopic,
+            Function<DlqEvent, CompletableFuture<Void>> publishDlq) {
+        var startedAt = System.nanoTime();
+        var sends = new ArrayList<CompletableFuture<Void>>(batch.size());
+        var keys = new HashSet<String>();
+        for (var raw : batch) {
+            var key = DedupeStore.key(raw);
+            if (dedupeStore.isDuplicate(raw) || (dedupeStore.enabled() && key != null && !keys.add(key))) {
+                sends.add(CompletableFuture.completedFuture(null));
+                continue;
+            }
+            try {
+                sends.add(eventPublisher.publishFormatted(formattingService.format(raw))
+                        .thenRun(() -> dedupeStore.markSeen(raw)));
+            } catch (Exception e) {
+                sends.add(publishDlq.apply(RawEventConsumer.buildDlqEvent(raw, sourceTopic, e, mapper)));
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                    .get(kafkaProperties.batch().sendTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BatchListenerFailedException("Interrupted while publishing formatted batch", e, firstPending(sends));
+        } catch (Exception e) {
+            var failed = firstPending(sends);
+            log.warn("Failed to publish record {} of a {} batch of {}", failed, sourceTopic, batch.size());
+            throw new BatchListenerFailedException("Failed to publish formatted batch", e, failed);
+        }
+
+        batchSize.record(batch.size());
+        batchDuration.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private static int firstPending(List<CompletableFuture<Void>> sends) {
+        for (var i = 0; i < sends.size(); i++) {
+            var send = sends.get(i);
+            if (!send.isDone() || send.isCompletedExceptionally()) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
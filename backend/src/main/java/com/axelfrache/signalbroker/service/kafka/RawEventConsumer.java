@@ -6,7 +6,10 @@ import com.axelfrache.signalbroker.model.kafka.RawInboundEvent;
 
 import com.axelfrache.signalbroker.service.EventPublisher;
 import com.axelfrache.signalbroker.service.FormattingService;
+import com.axelfrache.signalbroker.service.dedupe.DedupeStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
@@ -14,40 +17,57 @@ import org.springframework.stereotype.Service;
 import java.time.Instant;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = { "kafka.batch.formatter", "kafka.streams.formatter" }, havingValue = "false", matchIfMissing = true)
 public class RawEventConsumer {
 
+    public static final String WHATSAPP_LISTENER_ID = "formatter-whatsapp";
+    public static final String MAIL_LISTENER_ID = "formatter-mail";
+
     private final FormattingService formattingService;
     private final EventPublisher eventPublisher;
+    private final DedupeStore dedupeStore;
+    private final ObjectMapper mapper;
 
-    @KafkaListener(topics = "${kafka.topics.whatsapp.raw}", groupId = "${kafka.groups.formatter}", containerFactory = "rawKafkaListenerContainerFactory")
+    @KafkaListener(id = WHATSAPP_LISTENER_ID, topics = "${kafka.topics.whatsapp.raw}", groupId = "${kafka.groups.formatter}", containerFactory = "rawKafkaListenerContainerFactory")
     public void onWhatsappRaw(@lombok.NonNull RawInboundEvent raw, @lombok.NonNull Acknowledgment ack) {
+        if (dedupeStore.isDuplicate(raw)) {
+            ack.acknowledge();
+            return;
+        }
+        CompletableFuture<Void> sent;
         try {
-            var formatted = formattingService.format(raw);
-            eventPublisher.publishFormatted(formatted);
+            sent = eventPublisher.publishFormatted(formattingService.format(raw))
+                    .thenRun(() -> dedupeStore.markSeen(raw));
         } catch (Exception e) {
-            eventPublisher.publishWhatsappFormatDlq(buildDlqEvent(raw, "support.whatsapp.raw", e));
-        } finally {
-            ack.acknowledge();
+            sent = eventPublisher.publishWhatsappFormatDlq(buildDlqEvent(raw, "support.whatsapp.raw", e, mapper));
         }
+        sent.join();
+        ack.acknowledge();
     }
 
-    @KafkaListener(topics = "${kafka.topics.mail.raw}", groupId = "${kafka.groups.formatter}", containerFactory = "rawKafkaListenerContainerFactory")
+    @KafkaListener(id = MAIL_LISTENER_ID, topics = "${kafka.topics.mail.raw}", groupId = "${kafka.groups.formatter}", containerFactory = "rawKafkaListenerContainerFactory")
     public void onMailRaw(@lombok.NonNull RawInboundEvent raw, @lombok.NonNull Acknowledgment ack) {
+        if (dedupeStore.isDuplicate(raw)) {
+            ack.acknowledge();
+            return;
+        }
+        CompletableFuture<Void> sent;
         try {
-            var formatted = formattingService.format(raw);
-            eventPublisher.publishFormatted(formatted);
+            sent = eventPublisher.publishFormatted(formattingService.format(raw))
+                    .thenRun(() -> dedupeStore.markSeen(raw));
         } catch (Exception e) {
-            eventPublisher.publishMailFormatDlq(buildDlqEvent(raw, "support.mail.raw", e));
-        } finally {
-            ack.acknowledge();
+            sent = eventPublisher.publishMailFormatDlq(buildDlqEvent(raw, "support.mail.raw", e, mapper));
         }
+        sent.join();
+        ack.acknowledge();
     }
 
-    private DlqEvent buildDlqEvent(@lombok.NonNull RawInboundEvent raw, String sourceTopic,
-            @lombok.NonNull Exception e) {
+    static DlqEvent buildDlqEvent(@lombok.NonNull RawInboundEvent raw, String sourceTopic,
+            @lombok.NonNull Exception e, ObjectMapper mapper) {
         var snippet = raw.body() != null && raw.body().length() > 200
                 ? raw.body().substring(0, 200) + "..."
                 : raw.body();
@@ -58,9 +78,11 @@ public class RawEventConsumer {
                 sourceTopic,
                 e.getMessage(),
                 snippet,
+                mapper.valueToTree(raw),
                 Instant.now(),
                 Map.of("rawEventId", raw.eventId() != null ? raw.eventId().toString() : "unknown",
                         "contact", raw.contact() != null ? raw.contact() : "unknown"),
-                1);
+                1,
+                2);
     }
 }
@@ -1,5 +1,6 @@
 package com.axelfrache.signalbroker.service.labeling;
 
+import com.axelfrache.signalbroker.dto.ClassificationResult;
 import com.axelfrache.signalbroker.exception.LabelingException;
 import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
 import com.axelfrache.signalbroker.model.kafka.LabeledTicketEvent;
@@ -8,8 +9,10 @@ import com.axelfrache.signalbroker.service.LabelingService;
 import com.axelfrache.signalbroker.service.TicketGroupingService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -21,43 +24,54 @@ public class DefaultLabelingService implements LabelingService {
     @Override
     public LabeledTicketEvent label(@lombok.NonNull FormattedTicketEvent formatted) throws LabelingException {
         try {
-            var result = classifierClient.classify(formatted);
-
-            if (result.confidence() < 0.0 || result.confidence() > 1.0) {
-                throw new LabelingException("Confidence score out of bounds: " + result.confidence());
-            }
-
-            var labeledTicket = new LabeledTicketEvent(
-                    formatted.ticketId(),
-                    formatted.receivedAt(),
-                    Instant.now(),
-                    result.subject(),
-                    formatted.body(),
-                    formatted.contact(),
-                    result.category(),
-                    result.ticketType(),
-                    result.priority(),
-                    result.confidence(),
-                    null,
-                    1);
-
-            var commonId = ticketGroupingService.assignCommonId(labeledTicket);
-
-            return new LabeledTicketEvent(
-                    labeledTicket.ticketId(),
-                    labeledTicket.receivedAt(),
-                    labeledTicket.labeledAt(),
-                    labeledTicket.subject(),
-                    labeledTicket.body(),
-                    labeledTicket.contact(),
-                    labeledTicket.category(),
-                    labeledTicket.ticketType(),
-                    labeledTicket.priority(),
-                    labeledTicket.confidence(),
-                    commonId,
-                    labeledTicket.schemaVersion());
+            return toLabeled(formatted, classifierClient.classify(formatted));
         } catch (Exception e) {
             throw new LabelingException("Failed to label ticket: " + e.getMessage(), e);
         }
     }
+
+    @Override
+    public CompletableFuture<LabeledTicketEvent> labelAsync(@lombok.NonNull FormattedTicketEvent formatted) {
+        return classifierClient.classifyAsync(formatted)
+                .publishOn(Schedulers.boundedElastic())
+                .map(result -> toLabeled(formatted, result))
+                .onErrorMap(e -> new LabelingException("Failed to label ticket: " + e.getMessage(), e))
+                .toFuture();
+    }
+
+    private LabeledTicketEvent toLabeled(FormattedTicketEvent formatted, ClassificationResult result) {
+        if (result.confidence() < 0.0 || result.confidence() > 1.0) {
+            throw new LabelingException("Confidence score out of bounds: " + result.confidence());
+        }
+
+        var labeledTicket = new LabeledTicketEvent(
+                formatted.ticketId(),
+                formatted.receivedAt(),
+                Instant.now(),
+                result.subject(),
+                formatted.body(),
+                formatted.contact(),
+                result.category(),
+                result.ticketType(),
+                result.priority(),
+                result.confidence(),
+                null,
+                1);
+
+        var commonId = ticketGroupingService.assignCommonId(labeledTicket);
+
+        return new LabeledTicketEvent(
+                labeledTicket.ticketId(),
+                labeledTicket.receivedAt(),
+                labeledTicket.labeledAt(),
+                labeledTicket.subject(),
+                labeledTicket.body(),
+                labeledTicket.contact(),
+                labeledTicket.category(),
+                labeledTicket.ticketType(),
+                labeledTicket.priority(),
+                labeledTicket.confidence(),
+                commonId,
+                labeledTicket.schemaVersion());
+    }
 }
@@ -0,0 +1,146 @@
+package com.axelfrache.signalbroker.service.labeling;
+
+import com.axelfrache.signalbroker.config.properties.LabelingProperties;
+import com.axelfrache.signalbroker.model.enums.Priority;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue of labeling work drained by {@code labeling.maxInFlight} workers. Tasks are ordered by a virtual
+ * deadline of {@code enqueuedAt + priority * agingMs}, so a P0 ticket overtakes anything queued less than
+ * {@code agingMs} earlier, while older low-priority work still gets its turn. Submitting never blocks; the
+ * consumer pauses its container once {@code labeling.scheduler.capacity} is reached.
+ */
+@Slf4j
+@Component
+public class LabelingScheduler implements SmartLifecycle {
+
+    private final LabelingProperties labelingProperties;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final PriorityQueue<Task> queue = new PriorityQueue<>(
+            Comparator.comparingLong(Task::deadline).thenComparingLong(Task::sequence));
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+    private final List<Thread> workers = new ArrayList<>();
+    private long sequence;
+    private volatile boolean running;
+
+    public LabelingScheduler(LabelingProperties labelingProperties, MeterRegistry meterRegistry) {
+        this.labelingProperties = labelingProperties;
+        for (var priority : Priority.values()) {
+            waitTimers.put(priority, Timer.builder("labeling.queue.wait")
+                    .description("Time a ticket waits in the labeling queue before a worker picks it up")
+                    .tag("priority", priority.name())
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry));
+        }
+        Gauge.builder("labeling.queue.size", this, LabelingScheduler::size)
+                .description("Tickets waiting in the labeling queue")
+                .register(meterRegistry);
+    }
+
+    public void submit(Priority priority, Runnable work) {
+        enqueue(priority, System.currentTimeMillis(), work);
+    }
+
+    public void resubmit(Priority priority, Runnable work, long delayMs) {
+        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS)
+                .execute(() -> enqueue(priority, System.currentTimeMillis(), work));
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void enqueue(Priority priority, long enqueuedAt, Runnable work) {
+        var deadline = enqueuedAt + priority.ordinal() * labelingProperties.scheduler().agingMs();
+        lock.lock();
+        try {
+            queue.add(new Task(priority, enqueuedAt, deadline, sequence++, work));
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Task take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                notEmpty.await();
+            }
+            return queue.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (labelingProperties.mode() != LabelingProperties.Mode.PRIORITY) {
+            return;
+        }
+        running = true;
+        for (var i = 0; i < labelingProperties.maxInFlight(); i++) {
+            workers.add(Thread.ofVirtual().name("labeling-worker-" + i).start(this::work));
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 200;
+    }
+
+    private void work() {
+        while (running) {
+            Task task;
+            try {
+                task = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            waitTimers.get(task.priority())
+                    .record(System.currentTimeMillis() - task.enqueuedAt(), TimeUnit.MILLISECONDS);
+            try {
+                task.work().run();
+            } catch (Exception e) {
+                log.error("Labeling task failed", e);
+            }
+        }
+    }
+
+    record Task(Priority priority, long enqueuedAt, long deadline, long sequence, Runnable work) {
+    }
+}
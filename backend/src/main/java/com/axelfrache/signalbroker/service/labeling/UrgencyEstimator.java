@@ -0,0 +1,78 @@
+package com.axelfrache.signalbroker.service.labeling;
+
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.enums.Priority;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.service.grouping.TicketFingerprint;
+import com.axelfrache.signalbroker.service.llm.AhoCorasickMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cheap pre-classification urgency used to order the labeling queue: urgency keywords in the body,
+ * chat channels over e-mail, and contacts who have written several times in a short window.
+ */
+@Component
+public class UrgencyEstimator {
+
+    private static final int MAX_CONTACTS = 10_000;
+    private static final int FOLLOW_UP_THRESHOLD = 3;
+    private static final long FOLLOW_UP_WINDOW_MS = 15 * 60 * 1000;
+
+    private final AhoCorasickMatcher<Priority> keywords = new AhoCorasickMatcher<>(vocabulary());
+    private final Map<String, Deque<Long>> recentByContact = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Deque<Long>> eldest) {
+            return size() > MAX_CONTACTS;
+        }
+    };
+
+    public Priority estimate(FormattedTicketEvent formatted) {
+        var level = keywords.matches(" " + TicketFingerprint.normalize(formatted.body()) + " ").stream()
+                .mapToInt(Priority::ordinal)
+                .min()
+                .orElse(Priority.P2.ordinal());
+
+        if (formatted.channel() == ChannelType.WHATSAPP && level >= Priority.P2.ordinal()) {
+            level--;
+        }
+        if (followUps(formatted.contact()) >= FOLLOW_UP_THRESHOLD) {
+            level = Math.max(0, level - 1);
+        }
+        return Priority.values()[level];
+    }
+
+    private synchronized int followUps(String contact) {
+        if (contact == null) {
+            return 0;
+        }
+        var now = System.currentTimeMillis();
+        var recent = recentByContact.computeIfAbsent(contact, c -> new ArrayDeque<>());
+        while (!recent.isEmpty() && now - recent.peekFirst() > FOLLOW_UP_WINDOW_MS) {
+            recent.pollFirst();
+        }
+        recent.addLast(now);
+        return recent.size();
+    }
+
+    private static Map<String, Priority> vocabulary() {
+        var vocabulary = new LinkedHashMap<String, Priority>();
+        for (var keyword : new String[] {"urgent", "urgence", "asap", "production", "prod", "down", "panne",
+                "hors service", "hors ligne", "outage", "critique", "critical", "plus personne", "tout le monde"}) {
+            vocabulary.put(" " + keyword + " ", Priority.P0);
+        }
+        for (var keyword : new String[] {"bloque", "bloquee", "bloquant", "impossible", "erreur", "error", "crash",
+                "plante", "ne fonctionne pas", "ne marche pas"}) {
+            vocabulary.put(" " + keyword + " ", Priority.P1);
+        }
+        for (var keyword : new String[] {"suggestion", "idee", "serait bien", "souhaiterais", "fonctionnalite",
+                "amelioration", "question", "renseignement"}) {
+            vocabulary.put(" " + keyword + " ", Priority.P3);
+        }
+        return vocabulary;
+    }
+}
@@ -0,0 +1,67 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Aho-Corasick automaton: finds every occurrence of a fixed set of patterns in a single pass over the
+ * text, in time linear in the text length plus the number of matches.
+ */
+public class AhoCorasickMatcher<V> {
+
+    private final Node<V> root = new Node<>();
+
+    public AhoCorasickMatcher(Map<String, V> patterns) {
+        for (var pattern : patterns.entrySet()) {
+            var node = root;
+            for (var i = 0; i < pattern.getKey().length(); i++) {
+                node = node.next.computeIfAbsent(pattern.getKey().charAt(i), c -> new Node<>());
+            }
+            node.outputs.add(pattern.getValue());
+        }
+
+        var queue = new ArrayDeque<Node<V>>();
+        for (var child : root.next.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            var node = queue.poll();
+            for (var transition : node.next.entrySet()) {
+                var child = transition.getValue();
+                var fail = node.fail;
+                while (fail != root && !fail.next.containsKey(transition.getKey())) {
+                    fail = fail.fail;
+                }
+                child.fail = fail.next.getOrDefault(transition.getKey(), root);
+                child.outputs.addAll(child.fail.outputs);
+                queue.add(child);
+            }
+        }
+    }
+
+    public Set<V> matches(String text) {
+        var found = new LinkedHashSet<V>();
+        var node = root;
+        for (var i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            while (node != root && !node.next.containsKey(c)) {
+                node = node.fail;
+            }
+            node = node.next.getOrDefault(c, root);
+            found.addAll(node.outputs);
+        }
+        return found;
+    }
+
+    private static final class Node<V> {
+        private final Map<Character, Node<V>> next = new HashMap<>();
+        private final List<V> outputs = new ArrayList<>();
+        private Node<V> fail;
+    }
+}
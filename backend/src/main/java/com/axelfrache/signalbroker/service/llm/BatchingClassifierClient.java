@@ -0,0 +1,123 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.dto.ClassificationResult;
+import com.axelfrache.signalbroker.exception.OllamaClientException;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.service.ClassifierClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects classification requests for up to {@code maxWait} or {@code batchSize} tickets and sends
+ * them to Ollama as a single prompt. Tickets whose result is missing or malformed in the batch answer
+ * are classified again on their own.
+ */
+@Slf4j
+public class BatchingClassifierClient implements ClassifierClient {
+
+    private final OllamaClassifierClient delegate;
+    private final Sinks.Many<Pending> queue = Sinks.many().unicast().onBackpressureBuffer();
+    private final DistributionSummary batchSizes;
+    private final Counter fallbacks;
+    private final Timer batchedLatency;
+    private final Timer singleLatency;
+
+    public BatchingClassifierClient(OllamaClassifierClient delegate, int batchSize, long maxWaitMs,
+            MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.batchSizes = DistributionSummary.builder("labeling.batch.size")
+                .description("Tickets sent per classification request")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("labeling.batch.fallbacks")
+                .description("Tickets re-classified alone after a missing or malformed batch result")
+                .register(meterRegistry);
+        this.batchedLatency = ticketLatency(meterRegistry, "batch");
+        this.singleLatency = ticketLatency(meterRegistry, "single");
+        queue.asFlux()
+                .bufferTimeout(batchSize, Duration.ofMillis(maxWaitMs))
+                .flatMap(this::dispatch)
+                .subscribe();
+    }
+
+    @Override
+    public ClassificationResult classify(FormattedTicketEvent formatted) throws OllamaClientException {
+        return classifyAsync(formatted).block();
+    }
+
+    @Override
+    public Mono<ClassificationResult> classifyAsync(FormattedTicketEvent formatted) {
+        return Mono.defer(() -> {
+            var pending = new Pending(formatted, Sinks.one());
+            Sinks.EmitResult emitted;
+            synchronized (queue) {
+                emitted = queue.tryEmitNext(pending);
+            }
+            if (emitted.isFailure()) {
+                return Mono.error(new OllamaClientException("Classification queue rejected ticket: " + emitted));
+            }
+            return pending.result().asMono();
+        });
+    }
+
+    private Mono<Void> dispatch(List<Pending> batch) {
+        batchSizes.record(batch.size());
+        if (batch.size() == 1) {
+            return single(batch.getFirst());
+        }
+
+        var startedAt = System.nanoTime();
+        return delegate.classifyBatch(batch.stream().map(Pending::formatted).toList())
+                .flatMap(results -> {
+                    batchedLatency.record((System.nanoTime() - startedAt) / batch.size(), TimeUnit.NANOSECONDS);
+                    return Flux.range(0, batch.size())
+                            .flatMap(i -> {
+                                var result = results.get(i);
+                                if (result == null) {
+                                    fallbacks.increment();
+                                    return single(batch.get(i));
+                                }
+                                batch.get(i).result().tryEmitValue(result);
+                                return Mono.empty();
+                            })
+                            .then();
+                })
+                .onErrorResume(e -> {
+                    log.warn("Batch classification of {} tickets failed: {}", batch.size(), e.getMessage());
+                    batch.forEach(pending -> pending.result().tryEmitError(e));
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> single(Pending pending) {
+        var startedAt = System.nanoTime();
+        return delegate.classifyAsync(pending.formatted())
+                .doOnNext(result -> {
+                    singleLatency.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    pending.result().tryEmitValue(result);
+                })
+                .doOnError(e -> pending.result().tryEmitError(e))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private static Timer ticketLatency(MeterRegistry meterRegistry, String path) {
+        return Timer.builder("labeling.batch.ticket.latency")
+                .description("Classification latency per ticket, amortized over the batch")
+                .tag("path", path)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    private record Pending(FormattedTicketEvent formatted, Sinks.One<ClassificationResult> result) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.dto.ClassificationResult;
+import com.axelfrache.signalbroker.exception.OllamaClientException;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.service.ClassifierClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content-addressed cache in front of a {@link ClassifierClient}. Results are keyed by a SHA-256 of
+ * the classifier model and the formatted body, evicted by LRU order and TTL, and concurrent requests
+ * for the same key share a single upstream call.
+ */
+public class CachingClassifierClient implements ClassifierClient {
+
+    private final ClassifierClient delegate;
+    private final String model;
+    private final int capacity;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+    private final Map<String, CompletableFuture<ClassificationResult>> inFlight = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    public CachingClassifierClient(ClassifierClient delegate, String model, int capacity, long ttlMillis,
+            MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.model = model;
+        this.capacity = capacity;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > CachingClassifierClient.this.capacity;
+            }
+        };
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.coalesced = counter(meterRegistry, "coalesced");
+        Gauge.builder("labeling.cache.size", this, CachingClassifierClient::size)
+                .description("Classification results held in the cache")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ClassificationResult classify(FormattedTicketEvent formatted) throws OllamaClientException {
+        return classifyAsync(formatted).block();
+    }
+
+    @Override
+    public Mono<ClassificationResult> classifyAsync(FormattedTicketEvent formatted) {
+        return Mono.defer(() -> {
+            var key = key(formatted.body());
+            var cached = lookup(key);
+            if (cached != null) {
+                hits.increment();
+                return Mono.just(cached);
+            }
+
+            var pending = new CompletableFuture<ClassificationResult>();
+            var existing = inFlight.putIfAbsent(key, pending);
+            if (existing != null) {
+                coalesced.increment();
+                return Mono.fromFuture(existing, true);
+            }
+
+            misses.increment();
+            delegate.classifyAsync(formatted).subscribe(
+                    result -> {
+                        store(key, result);
+                        inFlight.remove(key, pending);
+                        pending.complete(result);
+                    },
+                    e -> {
+                        inFlight.remove(key, pending);
+                        pending.completeExceptionally(e);
+                    },
+                    () -> {
+                        if (inFlight.remove(key, pending)) {
+                            pending.completeExceptionally(new OllamaClientException("Empty response from Ollama API"));
+                        }
+                    });
+            return Mono.fromFuture(pending, true);
+        });
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized ClassificationResult lookup(String key) {
+        var entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() <= System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.result();
+    }
+
+    private synchronized void store(String key, ClassificationResult result) {
+        entries.put(key, new Entry(result, System.currentTimeMillis() + ttlMillis));
+    }
+
+    private String key(String body) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update((body != null ? body : "").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("labeling.cache.requests")
+                .description("Classification requests by cache outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Entry(ClassificationResult result, long expiresAt) {
+    }
+}
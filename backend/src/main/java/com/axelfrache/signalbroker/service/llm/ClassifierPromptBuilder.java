@@ -0,0 +1,114 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.config.properties.OllamaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Builds classifier prompts as a byte-identical static instruction prefix followed by the ticket body,
+ * so Ollama can reuse the evaluated prefix from its prompt cache while the model stays loaded. Bodies
+ * over the token budget keep their head and tail around a truncation marker; tokens are estimated as
+ * one per four characters.
+ */
+@Component
+public class ClassifierPromptBuilder {
+
+    static final String PREFIX = """
+            You are a support ticket classifier. Analyze the message and return ONLY a JSON object.
+
+            CRITICAL: Use ONLY these EXACT values (no variations, no synonyms):
+
+            {
+              "subject": "short description, max 80 chars",
+              "category": "FRONTEND | BACKEND | INFRA | MOBILE",
+              "ticketType": "FEATURE | BUG | OTHER",
+              "priority": "P0 | P1 | P2 | P3",
+              "confidence": 0.0 to 1.0
+            }
+
+            Priority guide: P0 = production down, P1 = major impact, P2 = moderate, P3 = minor.
+
+            Message:
+            """;
+
+    static final String BATCH_PREFIX = """
+            You are a support ticket classifier. Analyze each message independently and return ONLY a JSON object
+            with one entry per message in "results", using the message number as "index".
+
+            CRITICAL: Use ONLY these EXACT values (no variations, no synonyms):
+
+            {
+              "results": [
+                {
+                  "index": 1,
+                  "subject": "short description, max 80 chars",
+                  "category": "FRONTEND | BACKEND | INFRA | MOBILE",
+                  "ticketType": "FEATURE | BUG | OTHER",
+                  "priority": "P0 | P1 | P2 | P3",
+                  "confidence": 0.0 to 1.0
+                }
+              ]
+            }
+
+            Priority guide: P0 = production down, P1 = major impact, P2 = moderate, P3 = minor.
+
+            """;
+
+    static final String TRUNCATION_MARKER = "\n[...]\n";
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final int maxBodyTokens;
+    private final double headRatio;
+    private final Counter truncated;
+
+    public ClassifierPromptBuilder(OllamaProperties ollamaProperties, MeterRegistry meterRegistry) {
+        this.maxBodyTokens = ollamaProperties.prompt().maxBodyTokens();
+        this.headRatio = ollamaProperties.prompt().headRatio();
+        this.truncated = Counter.builder("ollama.prompt.truncated")
+                .description("Ticket bodies cut down to the prompt token budget")
+                .register(meterRegistry);
+    }
+
+    public String single(String body) {
+        return PREFIX + fit(body) + "\n";
+    }
+
+    public String batch(List<String> bodies) {
+        var prompt = new StringBuilder(BATCH_PREFIX);
+        for (var i = 0; i < bodies.size(); i++) {
+            prompt.append("Message ").append(i + 1).append(":\n").append(fit(bodies.get(i))).append("\n\n");
+        }
+        return prompt.toString();
+    }
+
+    static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    String fit(String body) {
+        if (body == null) {
+            return "";
+        }
+        if (estimateTokens(body) <= maxBodyTokens) {
+            return body;
+        }
+
+        truncated.increment();
+        var budget = Math.max(0, maxBodyTokens * CHARS_PER_TOKEN - TRUNCATION_MARKER.length());
+        var head = (int) (budget * headRatio);
+        var tailStart = body.length() - (budget - head);
+        // Never split a surrogate pair, which would leave a lone half in the JSON request
+        if (head > 0 && Character.isHighSurrogate(body.charAt(head - 1))) {
+            head--;
+        }
+        if (tailStart < body.length() && Character.isLowSurrogate(body.charAt(tailStart))) {
+            tailStart++;
+        }
+        return body.substring(0, head).stripTrailing()
+                + TRUNCATION_MARKER
+                + body.substring(tailStart).stripLeading();
+    }
+}
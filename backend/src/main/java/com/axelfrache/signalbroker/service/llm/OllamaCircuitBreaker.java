@@ -0,0 +1,101 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.config.properties.OllamaProperties;
+import com.axelfrache.signalbroker.exception.OllamaUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens after {@code failureThreshold} consecutive Ollama failures and rejects calls for
+ * {@code openMs}; then lets traffic through again in HALF_OPEN, where the first success closes it and
+ * the first failure re-opens it. State changes are published as {@link StateChanged} events.
+ */
+@Slf4j
+@Component
+public class OllamaCircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    public record StateChanged(State state) {
+    }
+
+    private final ApplicationEventPublisher events;
+    private final OllamaProperties.CircuitBreaker config;
+    private final MeterRegistry meterRegistry;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    public OllamaCircuitBreaker(ApplicationEventPublisher events, OllamaProperties ollamaProperties,
+            MeterRegistry meterRegistry) {
+        this.events = events;
+        this.config = ollamaProperties.circuitBreaker();
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("ollama.circuit.state", this, breaker -> breaker.state().ordinal())
+                .description("Ollama circuit breaker state (0 closed, 1 half-open, 2 open)")
+                .register(meterRegistry);
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= config.openMs()) {
+            transition(State.HALF_OPEN);
+        }
+        return state != State.OPEN;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            transition(State.CLOSED);
+        }
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN
+                || (state == State.CLOSED && consecutiveFailures >= config.failureThreshold())) {
+            openedAt = System.currentTimeMillis();
+            transition(State.OPEN);
+        }
+    }
+
+    public boolean shouldDefer(Throwable e) {
+        if (state() != State.CLOSED) {
+            return true;
+        }
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OllamaUnavailableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long retryDelayMs() {
+        return config.openMs();
+    }
+
+    @Scheduled(fixedDelayString = "${ollama.circuitBreaker.openMs}")
+    public void probe() {
+        allowRequest();
+    }
+
+    private void transition(State next) {
+        log.warn("Ollama circuit breaker {} -> {} after {} consecutive failures", state, next, consecutiveFailures);
+        state = next;
+        meterRegistry.counter("ollama.circuit.transitions", "state", next.name()).increment();
+        events.publishEvent(new StateChanged(next));
+    }
+}
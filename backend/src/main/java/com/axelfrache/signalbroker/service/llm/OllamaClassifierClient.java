@@ -8,16 +8,23 @@ import com.axelfrache.signalbroker.model.enums.Priority;
 import com.axelfrache.signalbroker.model.enums.TicketType;
 import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
 import com.axelfrache.signalbroker.service.ClassifierClient;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @RequiredArgsConstructor
@@ -26,6 +33,8 @@ public class OllamaClassifierClient implements ClassifierClient {
     private final WebClient webClient;
     private final OllamaProperties ollamaProperties;
     private final ObjectMapper mapper;
+    private final ClassifierPromptBuilder promptBuilder;
+    private final MeterRegistry meterRegistry;
 
     private static final Map<String, Category> CATEGORY_ALIASES = Map.ofEntries(
             Map.entry("FRONTEND", Category.FRONTEND),
@@ -66,84 +75,120 @@ public class OllamaClassifierClient implements ClassifierClient {
 
     @Override
     public ClassificationResult classify(@lombok.NonNull FormattedTicketEvent formatted) throws OllamaClientException {
-        var prompt = buildPrompt(formatted);
+        return classifyAsync(formatted).block();
+    }
 
-        try {
-            var request = Map.of(
-                    "model", ollamaProperties.model().classifier(),
-                    "prompt", prompt,
-                    "stream", false,
-                    "format", "json");
-
-            var response = webClient.post()
-                    .uri("/api/generate")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(request)
-                    .retrieve()
-                    .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
-                            clientResponse -> Mono.error(
-                                    new OllamaClientException("Ollama API error: " + clientResponse.statusCode())))
-                    .bodyToMono(OllamaResponse.class)
-                    .block();
-
-            if (response == null || response.response() == null) {
-                throw new OllamaClientException("Empty response from Ollama API");
-            }
+    @Override
+    public Mono<ClassificationResult> classifyAsync(@lombok.NonNull FormattedTicketEvent formatted) {
+        return generate(promptBuilder.single(formatted.body()), "single")
+                .map(this::parseResponse);
+    }
 
-            return parseResponse(response.response());
+    public Mono<List<ClassificationResult>> classifyBatch(@lombok.NonNull List<FormattedTicketEvent> batch) {
+        return generate(promptBuilder.batch(batch.stream().map(FormattedTicketEvent::body).toList()), "batch")
+                .map(json -> parseBatchResponse(json, batch.size()));
+    }
 
-        } catch (OllamaClientException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new OllamaClientException("Error calling Ollama API: " + e.getMessage(), e);
+    private Mono<String> generate(String prompt, String kind) {
+        var request = Map.of(
+                "model", ollamaProperties.model().classifier(),
+                "prompt", prompt,
+                "stream", false,
+                "format", "json",
+                "keep_alive", ollamaProperties.prompt().keepAlive());
+
+        return webClient.post()
+                .uri("/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> Mono.error(
+                                new OllamaClientException("Ollama API error: " + clientResponse.statusCode())))
+                .bodyToMono(OllamaResponse.class)
+                .doOnNext(response -> recordUsage(response, kind))
+                .mapNotNull(OllamaResponse::response)
+                .switchIfEmpty(Mono.error(() -> new OllamaClientException("Empty response from Ollama API")))
+                .onErrorMap(e -> !(e instanceof OllamaClientException),
+                        e -> new OllamaClientException("Error calling Ollama API: " + e.getMessage(), e));
+    }
+
+    private void recordUsage(OllamaResponse response, String kind) {
+        if (response.promptEvalCount() != null) {
+            DistributionSummary.builder("ollama.prompt.tokens")
+                    .description("Prompt tokens evaluated by Ollama per request")
+                    .tag("kind", kind)
+                    .register(meterRegistry)
+                    .record(response.promptEvalCount());
+        }
+        if (response.promptEvalDuration() != null) {
+            meterRegistry.timer("ollama.prompt.eval.duration", "kind", kind)
+                    .record(response.promptEvalDuration(), TimeUnit.NANOSECONDS);
+        }
+        if (response.evalCount() != null) {
+            DistributionSummary.builder("ollama.eval.tokens")
+                    .description("Tokens generated by Ollama per request")
+                    .tag("kind", kind)
+                    .register(meterRegistry)
+                    .record(response.evalCount());
+        }
+        if (response.evalDuration() != null) {
+            meterRegistry.timer("ollama.eval.duration", "kind", kind)
+                    .record(response.evalDuration(), TimeUnit.NANOSECONDS);
         }
     }
 
     private ClassificationResult parseResponse(String json) throws OllamaClientException {
         try {
-            JsonNode node = mapper.readTree(json);
+            return toResult(mapper.readTree(json));
+        } catch (Exception e) {
+            throw new OllamaClientException("Failed to parse Ollama response: " + e.getMessage(), e);
+        }
+    }
+
+    private List<ClassificationResult> parseBatchResponse(String json, int size) {
+        var results = new ArrayList<ClassificationResult>(Collections.nCopies(size, null));
+        JsonNode items;
+        try {
+            items = mapper.readTree(json).path("results");
+        } catch (Exception e) {
+            return results;
+        }
 
-            var rawCategory = getTextOrDefault(node, "category", "OTHER");
-            var rawTicketType = getTextOrDefault(node, "ticketType", "OTHER");
-            var rawPriority = getTextOrDefault(node, "priority", "P2");
-            var subject = getTextOrDefault(node, "subject", "No subject");
-            var confidence = node.has("confidence") ? node.get("confidence").asDouble(0.5) : 0.5;
+        for (var item : items) {
+            var index = item.path("index").asInt(0) - 1;
+            if (index < 0 || index >= size || results.get(index) != null
+                    || !item.hasNonNull("category") || !item.hasNonNull("ticketType") || !item.hasNonNull("priority")) {
+                continue;
+            }
+            results.set(index, toResult(item));
+        }
+        return results;
+    }
 
-            var category = CATEGORY_ALIASES.getOrDefault(rawCategory.toUpperCase(Locale.ROOT), Category.BACKEND);
-            var ticketType = TICKET_TYPE_ALIASES.getOrDefault(rawTicketType.toUpperCase(Locale.ROOT), TicketType.OTHER);
-            var priority = PRIORITY_ALIASES.getOrDefault(rawPriority.toUpperCase(Locale.ROOT), Priority.P2);
+    private ClassificationResult toResult(JsonNode node) {
+        var rawCategory = getTextOrDefault(node, "category", "OTHER");
+        var rawTicketType = getTextOrDefault(node, "ticketType", "OTHER");
+        var rawPriority = getTextOrDefault(node, "priority", "P2");
+        var subject = getTextOrDefault(node, "subject", "No subject");
+        var confidence = node.has("confidence") ? node.get("confidence").asDouble(0.5) : 0.5;
 
-            return new ClassificationResult(subject, category, ticketType, priority, confidence);
+        var category = CATEGORY_ALIASES.getOrDefault(rawCategory.toUpperCase(Locale.ROOT), Category.BACKEND);
+        var ticketType = TICKET_TYPE_ALIASES.getOrDefault(rawTicketType.toUpperCase(Locale.ROOT), TicketType.OTHER);
+        var priority = PRIORITY_ALIASES.getOrDefault(rawPriority.toUpperCase(Locale.ROOT), Priority.P2);
 
-        } catch (Exception e) {
-            throw new OllamaClientException("Failed to parse Ollama response: " + e.getMessage(), e);
-        }
+        return new ClassificationResult(subject, category, ticketType, priority, confidence);
     }
 
     private String getTextOrDefault(JsonNode node, String field, String defaultValue) {
         return node.has(field) && !node.get(field).isNull() ? node.get(field).asText(defaultValue) : defaultValue;
     }
 
-    private String buildPrompt(FormattedTicketEvent formatted) {
-        return """
-                You are a support ticket classifier. Analyze the message and return ONLY a JSON object.
-                
-                CRITICAL: Use ONLY these EXACT values (no variations, no synonyms):
-                
-                {
-                  "subject": "short description, max 80 chars",
-                  "category": "FRONTEND | BACKEND | INFRA | MOBILE",
-                  "ticketType": "FEATURE | BUG | OTHER",
-                  "priority": "P0 | P1 | P2 | P3",
-                  "confidence": 0.0 to 1.0
-                }
-
-                Priority guide: P0 = production down, P1 = major impact, P2 = moderate, P3 = minor.
-                
-                Message: %s
-                """.formatted(formatted.body());
-    }
-
-    private record OllamaResponse(String response) {
+    private record OllamaResponse(
+            String response,
+            @JsonProperty("prompt_eval_count") Integer promptEvalCount,
+            @JsonProperty("prompt_eval_duration") Long promptEvalDuration,
+            @JsonProperty("eval_count") Integer evalCount,
+            @JsonProperty("eval_duration") Long evalDuration) {
     }
 }
@@ -0,0 +1,154 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.config.properties.OllamaProperties;
+import com.axelfrache.signalbroker.exception.OllamaUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * AIMD limit on concurrent Ollama requests. Each success whose latency stays within
+ * {@code tolerance} times the smoothed baseline grows the limit by {@code 1/limit}; errors, 5xx
+ * responses, timeouts and slow responses multiply it by {@code backoffRatio}. Requests over the limit
+ * wait up to {@code maxWaitMs} for a permit. Outcomes are also reported to the circuit breaker.
+ */
+@Component
+public class OllamaConcurrencyLimiter implements ExchangeFilterFunction {
+
+    private static final double BASELINE_SMOOTHING = 0.05;
+
+    private final OllamaProperties.Limiter config;
+    private final OllamaCircuitBreaker circuitBreaker;
+    private final Deque<Sinks.Empty<Void>> waiters = new ArrayDeque<>();
+    private final Counter rejections;
+    private double limit;
+    private int inFlight;
+    private double baselineNanos;
+
+    public OllamaConcurrencyLimiter(OllamaProperties ollamaProperties, OllamaCircuitBreaker circuitBreaker,
+            MeterRegistry meterRegistry) {
+        this.config = ollamaProperties.limiter();
+        this.circuitBreaker = circuitBreaker;
+        this.limit = config.initialLimit();
+        this.rejections = Counter.builder("ollama.limiter.rejections")
+                .description("Ollama requests rejected by the concurrency limiter or the open circuit")
+                .register(meterRegistry);
+        Gauge.builder("ollama.limiter.limit", this, OllamaConcurrencyLimiter::limit)
+                .description("Current adaptive limit on concurrent Ollama requests")
+                .register(meterRegistry);
+        Gauge.builder("ollama.limiter.in.flight", this, OllamaConcurrencyLimiter::inFlight)
+                .register(meterRegistry);
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.allowRequest()) {
+                rejections.increment();
+                return Mono.error(new OllamaUnavailableException("Ollama circuit breaker is open"));
+            }
+
+            return acquire().then(Mono.defer(() -> {
+                var startedAt = System.nanoTime();
+                return next.exchange(request)
+                        .timeout(Duration.ofMillis(config.requestTimeoutMs()))
+                        .doOnNext(response -> {
+                            if (response.statusCode().is5xxServerError()) {
+                                onDropped();
+                            } else {
+                                onSample(System.nanoTime() - startedAt);
+                            }
+                        })
+                        .doOnError(e -> onDropped())
+                        .doFinally(signal -> release());
+            }));
+        });
+    }
+
+    private Mono<Void> acquire() {
+        return Mono.defer(() -> {
+            var waiter = Sinks.<Void>empty();
+            synchronized (this) {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    return Mono.<Void>empty();
+                }
+                waiters.add(waiter);
+            }
+
+            return waiter.asMono()
+                    .timeout(Duration.ofMillis(config.maxWaitMs()))
+                    .onErrorResume(TimeoutException.class, e -> {
+                        if (abandon(waiter)) {
+                            rejections.increment();
+                            return Mono.error(new OllamaUnavailableException("Ollama concurrency limit reached"));
+                        }
+                        return Mono.empty();
+                    })
+                    .doOnCancel(() -> {
+                        if (!abandon(waiter)) {
+                            release();
+                        }
+                    });
+        });
+    }
+
+    private synchronized boolean abandon(Sinks.Empty<Void> waiter) {
+        return waiters.remove(waiter);
+    }
+
+    private void release() {
+        Sinks.Empty<Void> waiter;
+        synchronized (this) {
+            waiter = inFlight <= (int) limit ? waiters.poll() : null;
+            if (waiter == null) {
+                inFlight--;
+                return;
+            }
+        }
+        if (waiter.tryEmitEmpty().isFailure()) {
+            release();
+        }
+    }
+
+    private void onSample(long latencyNanos) {
+        synchronized (this) {
+            baselineNanos = baselineNanos == 0.0
+                    ? latencyNanos
+                    : baselineNanos + BASELINE_SMOOTHING * (latencyNanos - baselineNanos);
+            if (latencyNanos > baselineNanos * config.tolerance()) {
+                limit = Math.max(config.minLimit(), limit * config.backoffRatio());
+            } else {
+                limit = Math.min(config.maxLimit(), limit + 1.0 / limit);
+            }
+        }
+        circuitBreaker.onSuccess();
+    }
+
+    private void onDropped() {
+        synchronized (this) {
+            limit = Math.max(config.minLimit(), limit * config.backoffRatio());
+        }
+        circuitBreaker.onFailure();
+    }
+}
@@ -0,0 +1,54 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.config.properties.OllamaProperties;
+import com.axelfrache.signalbroker.exception.OllamaClientException;
+import com.axelfrache.signalbroker.service.EmbeddingClient;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+public class OllamaEmbeddingClient implements EmbeddingClient {
+
+    private final WebClient webClient;
+    private final OllamaProperties ollamaProperties;
+
+    @Override
+    public float[] embed(@lombok.NonNull String text) throws OllamaClientException {
+        try {
+            var request = Map.of(
+                    "model", ollamaProperties.model().embedding(),
+                    "prompt", text);
+
+            var response = webClient.post()
+                    .uri("/api/embeddings")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(request)
+                    .retrieve()
+                    .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                            clientResponse -> Mono.error(
+                                    new OllamaClientException("Ollama API error: " + clientResponse.statusCode())))
+                    .bodyToMono(OllamaEmbeddingResponse.class)
+                    .block();
+
+            if (response == null || response.embedding() == null || response.embedding().length == 0) {
+                throw new OllamaClientException("Empty embedding from Ollama API");
+            }
+
+            return response.embedding();
+
+        } catch (OllamaClientException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OllamaClientException("Error calling Ollama embeddings API: " + e.getMessage(), e);
+        }
+    }
+
+    private record OllamaEmbeddingResponse(float[] embedding) {
+    }
+}
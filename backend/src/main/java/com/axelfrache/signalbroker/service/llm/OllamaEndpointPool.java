@@ -0,0 +1,191 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.config.properties.OllamaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes each Ollama request to the healthy endpoint with the fewest requests in flight. Endpoints
+ * are ejected for {@code ejectionMs} after {@code maxFailures} consecutive errors and stay out until
+ * that deadline; only endpoints ejected by the periodic {@code /api/tags} probe are re-admitted by it.
+ */
+@Slf4j
+@Component
+public class OllamaEndpointPool implements ExchangeFilterFunction {
+
+    private final List<Endpoint> endpoints;
+    private final OllamaProperties.Pool config;
+
+    public OllamaEndpointPool(OllamaProperties ollamaProperties, MeterRegistry meterRegistry) {
+        this.config = ollamaProperties.pool();
+        var urls = ollamaProperties.endpoints() == null || ollamaProperties.endpoints().isEmpty()
+                ? List.of(ollamaProperties.baseUrl())
+                : ollamaProperties.endpoints();
+        this.endpoints = urls.stream()
+                .map(url -> new Endpoint(URI.create(url), meterRegistry))
+                .toList();
+    }
+
+    public URI primary() {
+        return endpoints.getFirst().base;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            var endpoint = select();
+            var startedAt = System.nanoTime();
+            endpoint.inFlight.incrementAndGet();
+
+            return next.exchange(ClientRequest.from(request).url(endpoint.resolve(request.url())).build())
+                    .doOnNext(response -> {
+                        if (response.statusCode().is5xxServerError()) {
+                            failed(endpoint, "HTTP " + response.statusCode().value());
+                        } else {
+                            endpoint.failures.set(0);
+                        }
+                    })
+                    .doOnError(e -> failed(endpoint, e.getMessage()))
+                    .doFinally(signal -> {
+                        endpoint.inFlight.decrementAndGet();
+                        endpoint.latency.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    });
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${ollama.pool.healthCheckIntervalMs}")
+    public void checkHealth() {
+        // Fire and forget: the probes time out well before the next run, so the scheduler thread never waits
+        probe().subscribe();
+    }
+
+    Mono<Void> probe() {
+        return Flux.fromIterable(endpoints)
+                .flatMap(endpoint -> endpoint.healthClient.get()
+                        .uri("/api/tags")
+                        .retrieve()
+                        .toBodilessEntity()
+                        .timeout(Duration.ofMillis(config.healthCheckTimeoutMs()))
+                        .doOnNext(response -> readmit(endpoint))
+                        .onErrorResume(e -> {
+                            eject(endpoint, "health check failed: " + e.getMessage(), true);
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    Endpoint select() {
+        var now = System.currentTimeMillis();
+        var offset = ThreadLocalRandom.current().nextInt(endpoints.size());
+        Endpoint best = null;
+        Endpoint leastEjected = null;
+
+        for (var i = 0; i < endpoints.size(); i++) {
+            var endpoint = endpoints.get((offset + i) % endpoints.size());
+            if (endpoint.ejectedUntil > now) {
+                if (leastEjected == null || endpoint.ejectedUntil < leastEjected.ejectedUntil) {
+                    leastEjected = endpoint;
+                }
+            } else if (best == null || endpoint.inFlight.get() < best.inFlight.get()) {
+                best = endpoint;
+            }
+        }
+        return best != null ? best : leastEjected;
+    }
+
+    private void failed(Endpoint endpoint, String reason) {
+        if (endpoint.failures.incrementAndGet() >= config.maxFailures()) {
+            eject(endpoint, reason, false);
+        }
+    }
+
+    private void eject(Endpoint endpoint, String reason, boolean byProbe) {
+        var wasHealthy = endpoint.healthy();
+        endpoint.ejectedUntil = System.currentTimeMillis() + config.ejectionMs();
+        endpoint.ejectedByProbe = byProbe && (wasHealthy || endpoint.ejectedByProbe);
+        endpoint.failures.set(0);
+        if (wasHealthy) {
+            endpoint.ejections.increment();
+            log.warn("Ejecting Ollama endpoint {} for {} ms: {}", endpoint.base, config.ejectionMs(), reason);
+        }
+    }
+
+    private void readmit(Endpoint endpoint) {
+        // /api/tags usually still answers while generation fails, so it cannot lift a traffic ejection
+        if (endpoint.healthy() || !endpoint.ejectedByProbe) {
+            return;
+        }
+        log.info("Ollama endpoint {} is healthy again", endpoint.base);
+        endpoint.ejectedUntil = 0;
+    }
+
+    static final class Endpoint {
+        private final URI base;
+        private final WebClient healthClient;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final Timer latency;
+        private final Counter ejections;
+        private volatile long ejectedUntil;
+        private volatile boolean ejectedByProbe;
+
+        private Endpoint(URI base, MeterRegistry meterRegistry) {
+            this.base = base;
+            this.healthClient = WebClient.create(base.toString());
+            var tag = base.getAuthority();
+            this.latency = Timer.builder("ollama.endpoint.latency")
+                    .description("Ollama request latency per endpoint")
+                    .tag("endpoint", tag)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            this.ejections = Counter.builder("ollama.endpoint.ejections")
+                    .description("Times an Ollama endpoint was taken out of rotation")
+                    .tag("endpoint", tag)
+                    .register(meterRegistry);
+            Gauge.builder("ollama.endpoint.in.flight", inFlight, AtomicInteger::get)
+                    .tag("endpoint", tag)
+                    .register(meterRegistry);
+            Gauge.builder("ollama.endpoint.healthy", this, endpoint -> endpoint.healthy() ? 1 : 0)
+                    .tag("endpoint", tag)
+                    .register(meterRegistry);
+        }
+
+        boolean healthy() {
+            return ejectedUntil <= System.currentTimeMillis();
+        }
+
+        private URI resolve(URI url) {
+            return UriComponentsBuilder.fromUri(url)
+                    .scheme(base.getScheme())
+                    .host(base.getHost())
+                    .port(base.getPort())
+                    .replacePath(base.getRawPath().replaceAll("/+$", "") + url.getRawPath())
+                    .build(true)
+                    .toUri();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.dto.ClassificationResult;
+import com.axelfrache.signalbroker.exception.OllamaClientException;
+import com.axelfrache.signalbroker.model.enums.Category;
+import com.axelfrache.signalbroker.model.enums.Priority;
+import com.axelfrache.signalbroker.model.enums.TicketType;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.service.ClassifierClient;
+import com.axelfrache.signalbroker.service.grouping.TicketFingerprint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keyword fast path in front of the LLM. The normalized body is scanned once with an Aho-Corasick
+ * automaton built from a curated support vocabulary; each matched keyword votes for a category, ticket
+ * type and/or priority. The delegate is only called when the weakest dimension's confidence is below the
+ * threshold.
+ */
+public class RuleBasedClassifierClient implements ClassifierClient {
+
+    private static final int SUBJECT_MAX_LENGTH = 80;
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    private final ClassifierClient delegate;
+    private final double threshold;
+    private final AhoCorasickMatcher<Rule> matcher;
+    private final Counter ruleHits;
+    private final Counter llmCalls;
+    private final Counter latencySaved;
+    private double llmLatencySeconds;
+
+    public RuleBasedClassifierClient(ClassifierClient delegate, double threshold, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.threshold = threshold;
+        this.matcher = new AhoCorasickMatcher<>(vocabulary());
+        this.ruleHits = counter(meterRegistry, "rules");
+        this.llmCalls = counter(meterRegistry, "llm");
+        this.latencySaved = Counter.builder("labeling.rules.latency.saved")
+                .description("Estimated LLM time avoided by the rule fast path")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("labeling.rules.fast.path.ratio", this, RuleBasedClassifierClient::fastPathRatio)
+                .description("Share of tickets classified by rules without calling the LLM")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ClassificationResult classify(FormattedTicketEvent formatted) throws OllamaClientException {
+        return classifyAsync(formatted).block();
+    }
+
+    @Override
+    public Mono<ClassificationResult> classifyAsync(FormattedTicketEvent formatted) {
+        return Mono.defer(() -> {
+            var startedAt = System.nanoTime();
+            var result = evaluate(formatted.body());
+            if (result != null && result.confidence() >= threshold) {
+                ruleHits.increment();
+                latencySaved.increment(Math.max(0.0, llmLatencySeconds() - seconds(System.nanoTime() - startedAt)));
+                return Mono.just(result);
+            }
+
+            llmCalls.increment();
+            return delegate.classifyAsync(formatted)
+                    .doOnNext(ignored -> recordLlmLatency(seconds(System.nanoTime() - startedAt)));
+        });
+    }
+
+    ClassificationResult evaluate(String body) {
+        var categories = new EnumMap<Category, Integer>(Category.class);
+        var ticketTypes = new EnumMap<TicketType, Integer>(TicketType.class);
+        var priorities = new EnumMap<Priority, Integer>(Priority.class);
+
+        for (var rule : matcher.matches(" " + TicketFingerprint.normalize(body) + " ")) {
+            vote(categories, rule.category(), rule.weight());
+            vote(ticketTypes, rule.ticketType(), rule.weight());
+            vote(priorities, rule.priority(), rule.weight());
+        }
+        if (categories.isEmpty() || ticketTypes.isEmpty()) {
+            return null;
+        }
+
+        var confidence = Math.min(confidence(categories), confidence(ticketTypes));
+        if (!priorities.isEmpty()) {
+            confidence = Math.min(confidence, confidence(priorities));
+        }
+
+        return new ClassificationResult(
+                subject(body),
+                winner(categories),
+                winner(ticketTypes),
+                priorities.isEmpty() ? Priority.P2 : winner(priorities),
+                confidence);
+    }
+
+    public synchronized double fastPathRatio() {
+        var total = ruleHits.count() + llmCalls.count();
+        return total == 0 ? 0.0 : ruleHits.count() / total;
+    }
+
+    private synchronized double llmLatencySeconds() {
+        return llmLatencySeconds;
+    }
+
+    private synchronized void recordLlmLatency(double seconds) {
+        llmLatencySeconds = llmLatencySeconds == 0.0
+                ? seconds
+                : llmLatencySeconds + LATENCY_SMOOTHING * (seconds - llmLatencySeconds);
+    }
+
+    private static <K extends Enum<K>> void vote(Map<K, Integer> votes, K value, int weight) {
+        if (value != null) {
+            votes.merge(value, weight, Integer::sum);
+        }
+    }
+
+    private static <K extends Enum<K>> K winner(Map<K, Integer> votes) {
+        return votes.entrySet().stream().max(Map.Entry.comparingByValue()).orElseThrow().getKey();
+    }
+
+    private static double confidence(Map<?, Integer> votes) {
+        var best = votes.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        var total = votes.values().stream().mapToInt(Integer::intValue).sum();
+        return (double) best / total * (1.0 - Math.pow(2.0, -best));
+    }
+
+    private static String subject(String body) {
+        var firstLine = body == null ? "" : body.strip().lines().findFirst().orElse("").strip();
+        if (firstLine.isEmpty()) {
+            return "No subject";
+        }
+        return firstLine.length() > SUBJECT_MAX_LENGTH
+                ? firstLine.substring(0, SUBJECT_MAX_LENGTH - 3) + "..."
+                : firstLine;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String path) {
+        return Counter.builder("labeling.rules.requests")
+                .description("Classification requests by the path that answered them")
+                .tag("path", path)
+                .register(meterRegistry);
+    }
+
+    private static Map<String, Rule> vocabulary() {
+        var rules = new LinkedHashMap<String, Rule>();
+
+        keywords(rules, new Rule(null, Category.MOBILE, null, null, 2),
+                "ios", "android", "iphone", "ipad", "smartphone", "application mobile", "appli mobile",
+                "app store", "play store");
+        keywords(rules, new Rule(null, Category.INFRA, null, null, 2),
+                "serveur", "server", "dns", "certificat", "ssl", "vpn", "reseau", "kubernetes", "docker",
+                "deploiement", "disque plein", "infrastructure", "devops");
+        keywords(rules, new Rule(null, Category.INFRA, TicketType.BUG, Priority.P0, 2),
+                "down", "panne", "hors service", "hors ligne", "outage");
+        keywords(rules, new Rule(null, Category.BACKEND, null, null, 2),
+                "erreur 500", "base de donnees", "database", "endpoint", "sql", "backend");
+        keywords(rules, new Rule(null, Category.FRONTEND, null, null, 2),
+                "page blanche", "ecran blanc", "bouton", "affichage", "navigateur", "formulaire", "css",
+                "frontend");
+        keywords(rules, new Rule(null, null, TicketType.BUG, null, 2),
+                "bug", "plante", "crash", "erreur", "error", "ne fonctionne pas", "ne marche pas", "broken");
+        keywords(rules, new Rule(null, null, TicketType.BUG, Priority.P1, 2),
+                "impossible", "bloque", "bloquee");
+        keywords(rules, new Rule(null, null, TicketType.FEATURE, null, 2),
+                "fonctionnalite", "ajouter", "serait bien", "souhaiterais", "suggestion", "amelioration",
+                "nouvelle option");
+        keywords(rules, new Rule(null, null, TicketType.OTHER, null, 2),
+                "comment faire", "comment puis je", "renseignement");
+        keywords(rules, new Rule(null, null, null, Priority.P0, 2),
+                "urgent", "production", "critique", "tout le monde", "plus personne");
+        keywords(rules, new Rule(null, null, null, Priority.P3, 2),
+                "mineur", "cosmetique", "faute de frappe", "typo");
+
+        var patterns = new LinkedHashMap<String, Rule>();
+        rules.forEach((keyword, rule) -> patterns.put(" " + keyword + " ", rule.withKeyword(keyword)));
+        return patterns;
+    }
+
+    private static void keywords(Map<String, Rule> rules, Rule rule, String... keywords) {
+        for (var keyword : keywords) {
+            rules.merge(TicketFingerprint.normalize(keyword), rule, Rule::merge);
+        }
+    }
+
+    record Rule(String keyword, Category category, TicketType ticketType, Priority priority, int weight) {
+
+        Rule withKeyword(String keyword) {
+            return new Rule(keyword, category, ticketType, priority, weight);
+        }
+
+        Rule merge(Rule other) {
+            return new Rule(keyword,
+                    other.category != null ? other.category : category,
+                    other.ticketType != null ? other.ticketType : ticketType,
+                    other.priority != null ? other.priority : priority,
+                    Math.max(weight, other.weight));
+        }
+    }
+}
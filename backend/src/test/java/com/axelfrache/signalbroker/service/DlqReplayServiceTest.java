@@ -0,0 +1,146 @@
+package com.axelfrache.signalbroker.service;
+
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import com.axelfrache.signalbroker.config.properties.ReplayProperties;
+import com.axelfrache.signalbroker.dto.DlqReplayJobDto;
+import com.axelfrache.signalbroker.dto.DlqReplayRequest;
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.enums.ProcessingStage;
+import com.axelfrache.signalbroker.model.enums.ReplayJobStatus;
+import com.axelfrache.signalbroker.model.kafka.DlqEvent;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.model.kafka.RawInboundEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DlqReplayServiceTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+    private static final String MAIL_DLQ = "support.mail.format.dlq";
+    private static final String WHATSAPP_DLQ = "support.whatsapp.format.dlq";
+    private static final String LABEL_DLQ = "support.label.dlq";
+
+    private MockConsumer<String, DlqEvent> consumer;
+    private EventPublisher eventPublisher;
+    private DlqReplayService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        consumer = new MockConsumer<>("earliest");
+        for (var topic : List.of(MAIL_DLQ, WHATSAPP_DLQ, LABEL_DLQ)) {
+            consumer.updatePartitions(topic, List.of(new PartitionInfo(topic, 0, Node.noNode(), null, null)));
+            consumer.updateBeginningOffsets(Map.of(new TopicPartition(topic, 0), 0L));
+        }
+        var consumerFactory = (ConsumerFactory<String, DlqEvent>) mock(ConsumerFactory.class);
+        when(consumerFactory.createConsumer()).thenReturn(consumer);
+
+        eventPublisher = mock(EventPublisher.class);
+        when(eventPublisher.publishFormatted(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(eventPublisher.publishWhatsappRaw(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        var topics = new KafkaAppProperties.Topics(new KafkaAppProperties.ChannelTopics("support.whatsapp.raw", WHATSAPP_DLQ),
+                new KafkaAppProperties.ChannelTopics("support.mail.raw", MAIL_DLQ), "support.formatted",
+                "support.labeled", "support.formatted.retry", LABEL_DLQ, null, null, null);
+        service = new DlqReplayService(consumerFactory, eventPublisher,
+                new KafkaAppProperties(null, null, null, null, topics, null, null, null, null, null),
+                new ReplayProperties(1_000, 1_000, 100, 10), MAPPER);
+    }
+
+    @Test
+    void testReplaysLabelFailuresMatchingReason() throws Exception {
+        var formatted = formatted();
+        records(LABEL_DLQ,
+                dlq(ProcessingStage.LABEL, "Ollama timeout", MAPPER.valueToTree(formatted)),
+                dlq(ProcessingStage.LABEL, "Invalid JSON", MAPPER.valueToTree(formatted())),
+                dlq(ProcessingStage.LABEL, "Read timeout", null));
+
+        var job = awaitFinished(service.start(new DlqReplayRequest(ProcessingStage.LABEL, "timeout", null, null,
+                null, null, null)).orElseThrow().jobId());
+
+        assertEquals(ReplayJobStatus.COMPLETED, job.status());
+        assertEquals(3, job.scanned());
+        assertEquals(2, job.matched());
+        assertEquals(1, job.replayed());
+        assertEquals(1, job.skipped());
+        verify(eventPublisher).publishFormatted(formatted);
+    }
+
+    @Test
+    void testFormatFailuresGoBackToTheirRawTopic() throws Exception {
+        var raw = new RawInboundEvent(UUID.randomUUID(), ChannelType.WHATSAPP, "wa-1", Instant.now(), "+33600000000",
+                "Bonjour", Map.of(), 1);
+        records(WHATSAPP_DLQ, dlq(ProcessingStage.FORMAT, "Body cannot be empty", MAPPER.valueToTree(raw)));
+        records(MAIL_DLQ);
+
+        var job = awaitFinished(service.start(new DlqReplayRequest(ProcessingStage.FORMAT, null, null, null,
+                null, 10, null)).orElseThrow().jobId());
+
+        assertEquals(1, job.replayed());
+        verify(eventPublisher).publishWhatsappRaw(raw);
+        verify(eventPublisher, never()).publishMailRaw(any());
+    }
+
+    @Test
+    void testMatchesFiltersOnEventIdsAndTimeRange() {
+        var event = dlq(ProcessingStage.LABEL, "timeout", null);
+
+        assertTrue(DlqReplayService.matches(event, new DlqReplayRequest(null, null,
+                event.failedAt().minusSeconds(1), event.failedAt().plusSeconds(1), List.of(event.eventId()), null, null)));
+        assertFalse(DlqReplayService.matches(event, new DlqReplayRequest(null, null,
+                event.failedAt().plusSeconds(1), null, null, null, null)));
+        assertFalse(DlqReplayService.matches(event, new DlqReplayRequest(null, null, null, null,
+                List.of(UUID.randomUUID()), null, null)));
+    }
+
+    private void records(String topic, DlqEvent... events) {
+        var partition = new TopicPartition(topic, 0);
+        consumer.updateEndOffsets(Map.of(partition, (long) events.length));
+        consumer.schedulePollTask(() -> {
+            for (var i = 0; i < events.length; i++) {
+                consumer.addRecord(new ConsumerRecord<>(topic, 0, i, events[i].eventId().toString(), events[i]));
+            }
+        });
+    }
+
+    private DlqReplayJobDto awaitFinished(UUID jobId) throws InterruptedException {
+        for (var i = 0; i < 500; i++) {
+            var job = service.getJob(jobId).orElseThrow();
+            if (job.status() != ReplayJobStatus.RUNNING) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        fail("Replay did not finish");
+        return null;
+    }
+
+    private static FormattedTicketEvent formatted() {
+        return new FormattedTicketEvent(UUID.randomUUID(), ChannelType.MAIL, Instant.parse("2026-01-01T10:00:00Z"),
+                Instant.parse("2026-01-01T10:00:01Z"), "Le paiement échoue", "user@example.com", 1);
+    }
+
+    private static DlqEvent dlq(ProcessingStage stage, String reason, JsonNode payload) {
+        return new DlqEvent(UUID.randomUUID(), stage, "support.formatted", reason, "snippet", payload, Instant.now(),
+                Map.of(), 1, 2);
+    }
+}
@@ -0,0 +1,354 @@
+package com.axelfrache.signalbroker.service;
+
+import com.axelfrache.signalbroker.config.properties.GroupingProperties;
+import com.axelfrache.signalbroker.config.properties.OllamaProperties;
+import com.axelfrache.signalbroker.model.enums.Category;
+import com.axelfrache.signalbroker.model.enums.Priority;
+import com.axelfrache.signalbroker.model.enums.TicketType;
+import com.axelfrache.signalbroker.model.kafka.LabeledTicketEvent;
+import com.axelfrache.signalbroker.service.grouping.CommonIdAllocator;
+import com.axelfrache.signalbroker.service.grouping.GroupStateStore;
+import com.axelfrache.signalbroker.service.grouping.TicketGroup;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TicketGroupingServiceTest {
+
+    private static final long NEW_GROUP_ID = 100;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicInteger requests = new AtomicInteger();
+    private GroupStateStore groupStateStore;
+    private CommonIdAllocator commonIdAllocator;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        groupStateStore = mock(GroupStateStore.class);
+        commonIdAllocator = mock(CommonIdAllocator.class);
+        when(commonIdAllocator.nextId()).thenReturn(NEW_GROUP_ID);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testParallelSearchReturnsFirstMatchWithoutWaitingForSlowCandidates() {
+        var service = service(GroupingProperties.SearchMode.PARALLEL, 5_000, prompt -> {
+            if (prompt.contains("Groupe B")) {
+                return answer("OUI", 20);
+            }
+            return answer("NON", prompt.contains("Groupe A") ? 50 : 3_000);
+        });
+        register(service, 1, "Groupe A", 3);
+        register(service, 2, "Groupe B", 2);
+        register(service, 3, "Groupe C", 1);
+
+        var startedAt = System.nanoTime();
+        assertEquals(2, service.assignCommonId(ticket()));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - startedAt).toMillis() < 2_000);
+        assertEquals(3, requests.get());
+        verifyNoInteractions(commonIdAllocator);
+    }
+
+    @Test
+    void testParallelSearchOpensNewGroupWhenTimeoutIsReached() {
+        var service = service(GroupingProperties.SearchMode.PARALLEL, 200, prompt -> answer("OUI", 3_000));
+        register(service, 1, "Groupe A", 2);
+        register(service, 2, "Groupe B", 1);
+
+        var startedAt = System.nanoTime();
+        assertEquals(NEW_GROUP_ID, service.assignCommonId(ticket()));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - startedAt).toMillis() < 2_000);
+        assertEquals(1, registry.get("grouping.search.timeouts").counter().count());
+    }
+
+    @Test
+    void testParallelSearchFailsInsteadOfOpeningGroupWhenComparisonErrors() {
+        var service = service(GroupingProperties.SearchMode.PARALLEL, 5_000, prompt -> prompt.contains("Groupe A")
+                ? Mono.error(new IllegalStateException("boom"))
+                : answer("NON", 10));
+        register(service, 1, "Groupe A", 2);
+        register(service, 2, "Groupe B", 1);
+
+        assertThrows(RuntimeException.class, () -> service.assignCommonId(ticket()));
+
+        verifyNoInteractions(commonIdAllocator);
+        verify(groupStateStore, never()).save(any());
+    }
+
+    @Test
+    void testParallelSearchStillMatchesWhenAnotherComparisonErrors() {
+        var service = service(GroupingProperties.SearchMode.PARALLEL, 5_000, prompt -> prompt.contains("Groupe A")
+                ? Mono.error(new IllegalStateException("boom"))
+                : answer("OUI", 10));
+        register(service, 1, "Groupe A", 2);
+        register(service, 2, "Groupe B", 1);
+
+        assertEquals(2, service.assignCommonId(ticket()));
+    }
+
+    @Test
+    void testSequentialSearchTreatsComparisonErrorAsNoMatch() {
+        var service = service(GroupingProperties.SearchMode.SEQUENTIAL, 5_000,
+                prompt -> Mono.error(new IllegalStateException("boom")));
+        register(service, 1, "Groupe A", 1);
+
+        assertEquals(NEW_GROUP_ID, service.assignCommonId(ticket()));
+    }
+
+    @Test
+    void testOneShotCachesOnlyTheChosenPair() {
+        var service = service(GroupingProperties.SearchMode.ONE_SHOT, 5_000,
+                prompt -> answer(prompt.contains("GROUPE 1:") ? "{\"groupe\": 2}" : "OUI", 0));
+        register(service, 1, "Groupe A", 1);
+        register(service, 2, "Groupe B", 2);
+
+        assertEquals(2, service.assignCommonId(ticket()));
+        assertEquals(1, requests.get());
+
+        // The model preferred B, which must not be read as "A is a different problem"
+        service.onGroupRemoved(2);
+        assertEquals(1, service.assignCommonId(ticket()));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void testOneShotNoMatchRulesOutEveryCandidate() {
+        var prompts = new ArrayList<String>();
+        var service = service(GroupingProperties.SearchMode.ONE_SHOT, 5_000, prompt -> {
+            prompts.add(prompt);
+            return answer(prompt.contains("GROUPE 1:") ? "{\"groupe\": null}" : "NON", 0);
+        });
+        register(service, 1, "Groupe A", 1);
+        register(service, 2, "Groupe B", 2);
+
+        assertEquals(NEW_GROUP_ID, service.assignCommonId(ticket()));
+        when(commonIdAllocator.nextId()).thenReturn(NEW_GROUP_ID + 1);
+        assertEquals(NEW_GROUP_ID + 1, service.assignCommonId(ticket()));
+
+        // Only the group opened by the first ticket is still unknown on the second pass
+        assertEquals(2, prompts.size());
+        assertTrue(prompts.get(1).contains("TICKET 2:"));
+        assertTrue(prompts.get(1).contains("Nouveau ticket"));
+        assertFalse(prompts.get(1).contains("Groupe A"));
+    }
+
+    @Test
+    void testOneShotFallsBackToPairwiseOnUnusableAnswer() {
+        for (var answer : List.of("pas du json", "{\"groupe\": 7}", "{\"autre\": 1}")) {
+            requests.set(0);
+            var service = service(GroupingProperties.SearchMode.ONE_SHOT, 5_000, prompt -> {
+                if (prompt.contains("GROUPE 1:")) {
+                    return answer(answer, 0);
+                }
+                return answer(prompt.contains("Groupe B") ? "OUI" : "NON", 0);
+            });
+            register(service, 1, "Groupe A", 1);
+            register(service, 2, "Groupe B", 2);
+
+            assertEquals(2, service.assignCommonId(ticket()), answer);
+            assertEquals(3, requests.get(), answer);
+        }
+    }
+
+    @Test
+    void testOneShotOpensNewGroupWhenTimeoutIsReached() {
+        var service = service(GroupingProperties.SearchMode.ONE_SHOT, 200, prompt -> answer("{\"groupe\": 1}", 3_000));
+        register(service, 1, "Groupe A", 1);
+        register(service, 2, "Groupe B", 2);
+
+        assertEquals(NEW_GROUP_ID, service.assignCommonId(ticket()));
+
+        assertEquals(1, requests.get());
+        assertEquals(1, registry.get("grouping.search.timeouts").counter().count());
+    }
+
+    @Test
+    void testOneShotFailsInsteadOfOpeningGroupWhenOllamaErrors() {
+        var service = service(GroupingProperties.SearchMode.ONE_SHOT, 5_000,
+                prompt -> Mono.error(new IllegalStateException("boom")));
+        register(service, 1, "Groupe A", 1);
+        register(service, 2, "Groupe B", 2);
+
+        assertThrows(RuntimeException.class, () -> service.assignCommonId(ticket()));
+
+        verifyNoInteractions(commonIdAllocator);
+        verify(groupStateStore, never()).save(any());
+    }
+
+    @Test
+    void testOneShotGetsItsOwnShareOfNearestGroups() {
+        var embeddingClient = mock(EmbeddingClient.class);
+        when(embeddingClient.embed(anyString())).thenReturn(new float[] {1f, 0f});
+        var prompts = new ArrayList<String>();
+        var service = service(new GroupingProperties.Shards(false, 100, Map.of(), 86_400_000, 60_000),
+                GroupingProperties.SearchMode.ONE_SHOT, 5_000, embeddingClient, prompt -> {
+                    prompts.add(prompt);
+                    return answer("{\"groupe\": 4}", 0);
+                });
+        for (var i = 1; i <= 4; i++) {
+            register(service, i, "Groupe " + i, Category.BACKEND, i, new float[] {1f, 0.05f * i});
+        }
+
+        var commonId = service.assignCommonId(ticket());
+
+        // Past the two pairwise confirmations: all four neighbours go into the single call
+        assertEquals(1, prompts.size());
+        assertTrue(prompts.get(0).contains("GROUPE 4:"));
+        assertNotEquals(NEW_GROUP_ID, commonId);
+    }
+
+    @Test
+    void testShardCapacityIsConfiguredPerCategory() {
+        var service = service(new GroupingProperties.Shards(false, 3, Map.of("INFRA", 1), 86_400_000, 60_000),
+                GroupingProperties.SearchMode.SEQUENTIAL, 5_000, prompt -> answer("NON", 0));
+        for (var id = 1; id <= 4; id++) {
+            register(service, id, "Infra " + id, Category.INFRA, id);
+            register(service, 10 + id, "Backend " + id, Category.BACKEND, id);
+        }
+
+        assertEquals(1, registry.get("grouping.shard.size").tag("shard", "INFRA").gauge().value());
+        assertEquals(3, registry.get("grouping.shard.size").tag("shard", "BACKEND").gauge().value());
+        assertEquals(3, registry.get("grouping.shard.evictions").tag("shard", "INFRA").tag("reason", "capacity")
+                .counter().count());
+    }
+
+    @Test
+    void testIdleGroupsAreEvictedAndTombstoned() {
+        var service = service(new GroupingProperties.Shards(false, 100, Map.of(), 3_600_000, 60_000),
+                GroupingProperties.SearchMode.SEQUENTIAL, 5_000, prompt -> answer("NON", 0));
+        register(service, 1, "Ancien", Category.BACKEND, 2);
+        register(service, 2, "Récent", Category.BACKEND, 0);
+
+        service.evictIdleGroups();
+
+        verify(groupStateStore).delete(1);
+        verify(groupStateStore, never()).delete(2);
+        assertEquals(1, registry.get("grouping.shard.size").tag("shard", "BACKEND").gauge().value());
+        assertEquals(1, registry.get("grouping.shard.evictions").tag("reason", "idle").counter().count());
+    }
+
+    private TicketGroupingService service(GroupingProperties.SearchMode mode, long timeoutMs,
+            Function<String, Mono<String>> ollama) {
+        return service(new GroupingProperties.Shards(false, 100, Map.of(), 86_400_000, 60_000), mode, timeoutMs,
+                ollama);
+    }
+
+    private TicketGroupingService service(GroupingProperties.Shards shards, GroupingProperties.SearchMode mode,
+            long timeoutMs, Function<String, Mono<String>> ollama) {
+        return service(shards, mode, timeoutMs, mock(EmbeddingClient.class), ollama);
+    }
+
+    private TicketGroupingService service(GroupingProperties.Shards shards, GroupingProperties.SearchMode mode,
+            long timeoutMs, EmbeddingClient embeddingClient, Function<String, Mono<String>> ollama) {
+        var grouping = new GroupingProperties(
+                shards,
+                new GroupingProperties.Embedding(true),
+                new GroupingProperties.Ann(0.75, 8, 2, 16, 100, 64),
+                new GroupingProperties.Lsh(false, 20, 3, 1),
+                new GroupingProperties.State(false, 1_000, 1_000),
+                new GroupingProperties.Search(mode, 4, timeoutMs, 8),
+                new GroupingProperties.VerdictCache(true, 1_024, 60_000));
+        var ollamaProperties = new OllamaProperties(null, null,
+                new OllamaProperties.Model("qwen2.5:3b-instruct", "nomic-embed-text"), null, null, null, null);
+        var webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    requests.incrementAndGet();
+                    return prompt(request).flatMap(ollama).map(this::response);
+                })
+                .build();
+        return new TicketGroupingService(webClient, ollamaProperties, embeddingClient, grouping,
+                groupStateStore, commonIdAllocator, registry, mapper);
+    }
+
+    private static void register(TicketGroupingService service, long commonId, String subject, int hoursAgo) {
+        register(service, commonId, subject, Category.BACKEND, hoursAgo);
+    }
+
+    private static void register(TicketGroupingService service, long commonId, String subject, Category category,
+            int hoursAgo) {
+        register(service, commonId, subject, category, hoursAgo, null);
+    }
+
+    private static void register(TicketGroupingService service, long commonId, String subject, Category category,
+            int hoursAgo, float[] centroid) {
+        var representative = new LabeledTicketEvent(UUID.randomUUID(), Instant.now(), Instant.now(), subject,
+                "Description de " + subject, "client@example.com", category, TicketType.BUG, Priority.P2,
+                0.9, commonId, 1);
+        service.onGroupRestored(new TicketGroup(commonId, representative, centroid, null, 1,
+                Instant.now().minusSeconds(hoursAgo * 3_600L)), false);
+    }
+
+    private static LabeledTicketEvent ticket() {
+        return new LabeledTicketEvent(UUID.randomUUID(), Instant.now(), Instant.now(), "Nouveau ticket",
+                "Le paiement échoue", "autre@example.com", Category.BACKEND, TicketType.BUG, Priority.P2, 0.9,
+                null, 1);
+    }
+
+    private static Mono<String> answer(String text, long delayMs) {
+        return Mono.delay(Duration.ofMillis(delayMs)).thenReturn(text);
+    }
+
+    private Mono<String> prompt(ClientRequest request) {
+        var captured = new MockClientHttpRequest(request.method(), request.url());
+        return request.body().insert(captured, new BodyInserter.Context() {
+                    @Override
+                    public List<HttpMessageWriter<?>> messageWriters() {
+                        return ExchangeStrategies.withDefaults().messageWriters();
+                    }
+
+                    @Override
+                    public Optional<org.springframework.http.server.reactive.ServerHttpRequest> serverRequest() {
+                        return Optional.empty();
+                    }
+
+                    @Override
+                    public Map<String, Object> hints() {
+                        return Map.of();
+                    }
+                })
+                .then(Mono.defer(captured::getBodyAsString))
+                .map(body -> {
+                    try {
+                        return mapper.readTree(body).get("prompt").asText();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+    }
+
+    private ClientResponse response(String text) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(mapper.createObjectNode().put("response", text).toString())
+                .build();
+    }
+}
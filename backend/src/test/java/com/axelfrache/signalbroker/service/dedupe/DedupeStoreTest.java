@@ -0,0 +1,140 @@
+package com.axelfrache.signalbroker.service.dedupe;
+
+import com.axelfrache.signalbroker.config.properties.DedupeProperties;
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.kafka.DedupeMarker;
+import com.axelfrache.signalbroker.model.kafka.RawInboundEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DedupeStoreTest {
+
+    private static final String TOPIC = "support.raw.dedupe";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    private MockConsumer<String, DedupeMarker> consumer;
+    private SimpleMeterRegistry registry;
+    private DedupeStore store;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        consumer = new MockConsumer<>("earliest");
+        consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        registry = new SimpleMeterRegistry();
+        store = store(new DedupeProperties(true, 60_000, 60_000, 500));
+    }
+
+    @Test
+    void testRepeatedSourceMessageIsDuplicateOnceFormatted() {
+        var first = raw(ChannelType.WHATSAPP, "wa-1");
+        var redelivered = raw(ChannelType.WHATSAPP, "wa-1");
+
+        assertFalse(store.isDuplicate(first));
+        assertFalse(store.isDuplicate(redelivered));
+        store.markSeen(first);
+
+        assertTrue(store.isDuplicate(redelivered));
+        assertFalse(store.isDuplicate(raw(ChannelType.MAIL, "wa-1")));
+        assertEquals(0.25, store.duplicateRatio(), 1e-9);
+        verify(kafkaTemplate).send(eq(TOPIC), eq("WHATSAPP:wa-1"),
+                argThat(marker -> ((DedupeMarker) marker).eventId().equals(first.eventId())));
+    }
+
+    @Test
+    void testEntriesOutsideWindowAreNotDuplicates() {
+        store.remember("MAIL:old", Instant.now().minusSeconds(120));
+
+        assertFalse(store.isDuplicate(raw(ChannelType.MAIL, "old")));
+        assertEquals(1, registry.get("dedupe.store.size").gauge().value());
+
+        store.sweep();
+        assertEquals(0, registry.get("dedupe.store.size").gauge().value());
+    }
+
+    @Test
+    void testMessagesWithoutSourceIdOrDisabledStoreAlwaysPass() {
+        var disabled = store(new DedupeProperties(false, 60_000, 60_000, 500));
+        var event = raw(ChannelType.MAIL, "msg-1");
+        disabled.markSeen(event);
+
+        assertFalse(disabled.isDuplicate(event));
+        assertFalse(store.isDuplicate(raw(ChannelType.MAIL, " ")));
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    void testReplayRestoresLiveMarkersAndAppliesTombstones() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 4L));
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(record(0, "MAIL:kept", new DedupeMarker(UUID.randomUUID(), Instant.now(), 1)));
+            consumer.addRecord(record(1, "MAIL:gone", new DedupeMarker(UUID.randomUUID(), Instant.now(), 1)));
+            consumer.addRecord(record(2, "MAIL:gone", null));
+            consumer.addRecord(record(3, "MAIL:old",
+                    new DedupeMarker(UUID.randomUUID(), Instant.now().minusSeconds(120), 1)));
+        });
+
+        try {
+            store.start();
+
+            assertTrue(store.isRunning());
+            assertTrue(store.isDuplicate(raw(ChannelType.MAIL, "kept")));
+            assertFalse(store.isDuplicate(raw(ChannelType.MAIL, "gone")));
+            assertFalse(store.isDuplicate(raw(ChannelType.MAIL, "old")));
+        } finally {
+            store.stop();
+        }
+    }
+
+    @Test
+    void testPersistFailuresAreCounted() {
+        when(kafkaTemplate.send(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        store.markSeen(raw(ChannelType.MAIL, "msg-1"));
+
+        assertEquals(1, registry.get("dedupe.persist.failures").counter().count());
+        assertTrue(store.isDuplicate(raw(ChannelType.MAIL, "msg-1")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private DedupeStore store(DedupeProperties properties) {
+        var consumerFactory = (ConsumerFactory<String, DedupeMarker>) mock(ConsumerFactory.class);
+        when(consumerFactory.createConsumer()).thenReturn(consumer);
+        var topics = new KafkaAppProperties.Topics(null, null, null, null, null, null, null, null, TOPIC);
+        return new DedupeStore(kafkaTemplate, consumerFactory,
+                new KafkaAppProperties(null, null, null, null, topics, null, null, null, null, null), properties,
+                registry);
+    }
+
+    private static ConsumerRecord<String, DedupeMarker> record(long offset, String key, DedupeMarker value) {
+        return new ConsumerRecord<>(TOPIC, 0, offset, key, value);
+    }
+
+    private static RawInboundEvent raw(ChannelType channel, String sourceMessageId) {
+        return new RawInboundEvent(UUID.randomUUID(), channel, sourceMessageId, Instant.now(), "+33600000000",
+                "Bonjour", Map.of(), 1);
+    }
+}
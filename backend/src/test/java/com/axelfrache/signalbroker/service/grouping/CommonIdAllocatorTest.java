@@ -0,0 +1,88 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+import com.axelfrache.signalbroker.config.properties.GroupingProperties;
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CommonIdAllocatorTest {
+
+    private static final String LEASE_TOPIC = "support.group.id-leases";
+
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+    }
+
+    @Test
+    void testIdsComeFromTheLeasedBlock() {
+        when(kafkaTemplate.send(eq(LEASE_TOPIC), eq(0), anyString(), any()))
+                .thenReturn(leasedAt(3), leasedAt(7));
+        var allocator = allocator(true, 100);
+
+        assertEquals(301, allocator.nextId());
+        for (var expected = 302; expected <= 400; expected++) {
+            assertEquals(expected, allocator.nextId());
+        }
+        verify(kafkaTemplate, times(1)).send(eq(LEASE_TOPIC), eq(0), anyString(), any());
+
+        assertEquals(701, allocator.nextId());
+        verify(kafkaTemplate, times(2)).send(eq(LEASE_TOPIC), eq(0), anyString(), any());
+    }
+
+    @Test
+    void testFirstBlockStartsAtOne() {
+        when(kafkaTemplate.send(eq(LEASE_TOPIC), eq(0), anyString(), any())).thenReturn(leasedAt(0));
+        var allocator = allocator(true, 10);
+
+        assertEquals(1, allocator.nextId());
+        assertEquals(2, allocator.nextId());
+    }
+
+    @Test
+    void testDisabledStateCountsLocally() {
+        var allocator = allocator(false, 100);
+
+        assertEquals(1, allocator.nextId());
+        assertEquals(2, allocator.nextId());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    void testFailedLeaseIsRetriedOnNextCall() {
+        when(kafkaTemplate.send(eq(LEASE_TOPIC), eq(0), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")), leasedAt(2));
+        var allocator = allocator(true, 50);
+
+        assertThrows(IllegalStateException.class, allocator::nextId);
+        assertEquals(101, allocator.nextId());
+    }
+
+    private CommonIdAllocator allocator(boolean stateEnabled, int blockSize) {
+        var topics = new KafkaAppProperties.Topics(null, null, null, null, null, null, "support.group.state",
+                LEASE_TOPIC, null);
+        var grouping = new GroupingProperties(null, null, null, null,
+                new GroupingProperties.State(stateEnabled, 1_000, blockSize), null, null);
+        return new CommonIdAllocator(kafkaTemplate,
+                new KafkaAppProperties(null, null, null, null, topics, null, null, null, null, null), grouping);
+    }
+
+    private static CompletableFuture<SendResult<String, Object>> leasedAt(long offset) {
+        var metadata = new RecordMetadata(new TopicPartition(LEASE_TOPIC, 0), offset, 0, 0L, 0, 0);
+        return CompletableFuture.completedFuture(new SendResult<>(new ProducerRecord<>(LEASE_TOPIC, "lease"), metadata));
+    }
+}
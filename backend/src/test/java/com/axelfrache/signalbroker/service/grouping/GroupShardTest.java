@@ -0,0 +1,83 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+import com.axelfrache.signalbroker.config.properties.GroupingProperties;
+import com.axelfrache.signalbroker.model.enums.Category;
+import com.axelfrache.signalbroker.model.enums.Priority;
+import com.axelfrache.signalbroker.model.enums.TicketType;
+import com.axelfrache.signalbroker.model.kafka.LabeledTicketEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupShardTest {
+
+    private GroupShard shard;
+
+    @BeforeEach
+    void setUp() {
+        shard = new GroupShard("BACKEND", 3, new GroupingProperties.Ann(0.75, 8, 2, 16, 100, 64),
+                new GroupingProperties.Lsh(true, 20, 3, 1));
+    }
+
+    @Test
+    void testOverflowEvictsLeastRecentlyActiveGroups() {
+        var now = Instant.now();
+        for (var id = 1; id <= 5; id++) {
+            shard.put(group(id, now.minusSeconds(id * 60L)), true);
+        }
+
+        var evicted = shard.evictOverflow();
+
+        assertEquals(3, shard.size());
+        assertEquals(2, evicted.size());
+        assertTrue(evicted.stream().allMatch(group -> group.commonId() == 4 || group.commonId() == 5));
+        assertNull(shard.get(5));
+        assertNotNull(shard.get(1));
+        assertTrue(shard.evictOverflow().isEmpty());
+    }
+
+    @Test
+    void testActivityProtectsGroupFromOverflowEviction() {
+        var now = Instant.now();
+        for (var id = 1; id <= 3; id++) {
+            shard.put(group(id, now.minusSeconds(id * 60L)), true);
+        }
+        shard.get(3).addTicket(null);
+        shard.put(group(4, now), true);
+
+        var evicted = shard.evictOverflow();
+
+        assertEquals(1, evicted.size());
+        assertEquals(2, evicted.getFirst().commonId());
+        assertNotNull(shard.get(3));
+    }
+
+    @Test
+    void testIdleGroupsAreEvictedFromEveryIndex() {
+        var now = Instant.now();
+        var stale = group(1, now.minusSeconds(7_200));
+        shard.put(stale, true);
+        shard.put(group(2, now), true);
+
+        var evicted = shard.evictIdle(now.minusSeconds(3_600));
+
+        assertEquals(1, evicted.size());
+        assertSame(stale, evicted.getFirst());
+        assertEquals(1, shard.size());
+        assertTrue(shard.nearest(new float[] {1f, 0f}, 5, 0.5).stream().noneMatch(group -> group.commonId() == 1));
+        assertTrue(shard.lexicalCandidates(stale.signature()).stream().noneMatch(group -> group.commonId() == 1));
+        assertTrue(shard.evictIdle(now.minusSeconds(3_600)).isEmpty());
+    }
+
+    private TicketGroup group(long commonId, Instant lastActivity) {
+        var representative = new LabeledTicketEvent(UUID.randomUUID(), Instant.now(), Instant.now(),
+                "Erreur de paiement", "Le paiement échoue au moment de valider la commande", "client@example.com",
+                Category.BACKEND, TicketType.BUG, Priority.P2, 0.9, commonId, 1);
+        return new TicketGroup(commonId, representative, new float[] {1f, 0f},
+                shard.signature(representative.subject(), representative.body()), 1, lastActivity);
+    }
+}
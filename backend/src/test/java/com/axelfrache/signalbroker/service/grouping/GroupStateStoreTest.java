@@ -0,0 +1,167 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+import com.axelfrache.signalbroker.config.properties.GroupingProperties;
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import com.axelfrache.signalbroker.model.enums.Category;
+import com.axelfrache.signalbroker.model.enums.Priority;
+import com.axelfrache.signalbroker.model.enums.TicketType;
+import com.axelfrache.signalbroker.model.kafka.GroupSnapshot;
+import com.axelfrache.signalbroker.model.kafka.LabeledTicketEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GroupStateStoreTest {
+
+    private static final String TOPIC = "support.group.state";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    private MockConsumer<String, GroupSnapshot> consumer;
+    private GroupStateListener listener;
+    private SimpleMeterRegistry registry;
+    private GroupStateStore store;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        consumer = new MockConsumer<>("earliest");
+        consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        listener = mock(GroupStateListener.class);
+        registry = new SimpleMeterRegistry();
+
+        var consumerFactory = (ConsumerFactory<String, GroupSnapshot>) mock(ConsumerFactory.class);
+        when(consumerFactory.createConsumer()).thenReturn(consumer);
+        var topics = new KafkaAppProperties.Topics(null, null, null, null, null, null, TOPIC,
+                "support.group.id-leases", null);
+        var grouping = new GroupingProperties(null, null, null, null,
+                new GroupingProperties.State(true, 500, 100), null, null);
+        store = new GroupStateStore(kafkaTemplate, consumerFactory,
+                new KafkaAppProperties(null, null, null, null, topics, null, null, null, null, null), grouping,
+                registry);
+        store.subscribe(listener);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.stop();
+    }
+
+    @Test
+    void testReplayRestoresSnapshotsAndAppliesTombstones() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 3L));
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(record(0, "1", snapshot(1, "other-instance")));
+            consumer.addRecord(record(1, "2", snapshot(2, "other-instance")));
+            consumer.addRecord(record(2, "1", null));
+        });
+
+        store.start();
+
+        var inOrder = inOrder(listener);
+        inOrder.verify(listener).onGroupRestored(argThat(group -> group.commonId() == 1), eq(true));
+        inOrder.verify(listener).onGroupRestored(argThat(group -> group.commonId() == 2), eq(true));
+        inOrder.verify(listener).onGroupRemoved(1);
+        inOrder.verify(listener).onReplayCompleted();
+        assertTrue(store.isRunning());
+    }
+
+    @Test
+    void testReplayStopsAtDeadlineWhenTopicNeverCatchesUp() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 10L));
+
+        var startedAt = System.nanoTime();
+        store.start();
+
+        verify(listener).onReplayCompleted();
+        assertTrue(System.nanoTime() - startedAt >= 500_000_000L);
+    }
+
+    @Test
+    void testFollowerSkipsOwnSnapshotsAndAppliesOthers() {
+        when(kafkaTemplate.send(eq(TOPIC), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        consumer.updateEndOffsets(Map.of(PARTITION, 0L));
+        store.start();
+        verify(listener).onReplayCompleted();
+
+        store.save(new TicketGroup(5, representative(), new float[] {0.5f, -0.25f}, new int[] {1, 2}));
+        var saved = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate).send(eq(TOPIC), eq("5"), saved.capture());
+        var own = (GroupSnapshot) saved.getValue();
+
+        consumer.addRecord(record(0, "5", own));
+        consumer.addRecord(record(1, "6", snapshot(6, "other-instance")));
+        consumer.addRecord(record(2, "7", null));
+
+        verify(listener, timeout(2_000)).onGroupRemoved(7);
+        verify(listener).onGroupRestored(argThat(group -> group.commonId() == 6), eq(false));
+        verify(listener, never()).onGroupRestored(argThat(group -> group.commonId() == 5), anyBoolean());
+    }
+
+    @Test
+    void testCentroidSurvivesHalfPrecisionRoundTrip() {
+        when(kafkaTemplate.send(eq(TOPIC), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        store.save(new TicketGroup(9, representative(), new float[] {0.5f, -0.25f, 0.125f}, new int[] {3}));
+        var saved = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate).send(eq(TOPIC), eq("9"), saved.capture());
+        var snapshot = (GroupSnapshot) saved.getValue();
+
+        consumer.updateEndOffsets(Map.of(PARTITION, 1L));
+        var foreign = new GroupSnapshot(snapshot.commonId(), snapshot.representative(), snapshot.centroid(),
+                snapshot.signature(), snapshot.size(), snapshot.updatedAt(), "other-instance", 1);
+        consumer.schedulePollTask(() -> consumer.addRecord(record(0, "9", foreign)));
+        store.start();
+
+        var restored = ArgumentCaptor.forClass(TicketGroup.class);
+        verify(listener).onGroupRestored(restored.capture(), eq(true));
+        assertArrayEquals(new float[] {0.5f, -0.25f, 0.125f}, restored.getValue().centroid(), 1e-3f);
+        assertEquals(6, snapshot.centroid().length);
+    }
+
+    @Test
+    void testPersistFailuresAreCounted() {
+        when(kafkaTemplate.send(eq(TOPIC), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        store.save(new TicketGroup(1, representative(), null, new int[] {1}));
+        store.save(new TicketGroup(2, representative(), null, new int[] {1}));
+        store.delete(3);
+
+        assertEquals(2, registry.get("grouping.state.persist.failures").tag("operation", "save").counter().count());
+        assertEquals(1, registry.get("grouping.state.persist.failures").tag("operation", "delete").counter().count());
+    }
+
+    private static ConsumerRecord<String, GroupSnapshot> record(long offset, String key, GroupSnapshot value) {
+        return new ConsumerRecord<>(TOPIC, 0, offset, key, value);
+    }
+
+    private static GroupSnapshot snapshot(long commonId, String ownerId) {
+        return new GroupSnapshot(commonId, representative(), null, new int[] {1, 2, 3}, 2, Instant.now(), ownerId, 1);
+    }
+
+    private static LabeledTicketEvent representative() {
+        return new LabeledTicketEvent(UUID.randomUUID(), Instant.now(), Instant.now(), "Paiement",
+                "Le paiement échoue sur l'application", "client@example.com", Category.BACKEND, TicketType.BUG,
+                Priority.P1, 0.9, null, 1);
+    }
+}
@@ -0,0 +1,139 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+
+    private HnswIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new HnswIndex(8, 64, 32);
+    }
+
+    @Test
+    void testSearchOnEmptyIndexReturnsNothing() {
+        assertTrue(index.search(new float[DIMENSION], 3).isEmpty());
+    }
+
+    @Test
+    void testSearchFindsExactVector() {
+        var random = new Random(42);
+        var vectors = new float[500][];
+        for (var i = 0; i < vectors.length; i++) {
+            vectors[i] = randomVector(random);
+            index.add(i, vectors[i]);
+        }
+
+        var hits = 0;
+        for (var i = 0; i < vectors.length; i++) {
+            var result = index.search(vectors[i], 1);
+            if (!result.isEmpty() && result.getFirst().id() == i) {
+                hits++;
+            }
+        }
+
+        assertEquals(500, index.size());
+        assertTrue(hits >= 490, "recall@1 too low: " + hits);
+    }
+
+    @Test
+    void testSimilarityIsCosine() {
+        index.add(1, new float[] {1f, 0f});
+        index.add(2, new float[] {0f, 3f});
+
+        var result = index.search(new float[] {2f, 2f}, 2);
+
+        assertEquals(2, result.size());
+        assertEquals(Math.sqrt(0.5), result.getFirst().similarity(), 1e-6);
+    }
+
+    @Test
+    void testRemovedVectorsAreNotReturned() {
+        var random = new Random(7);
+        var target = randomVector(random);
+        index.add(1, target);
+        for (var i = 2; i < 100; i++) {
+            index.add(i, randomVector(random));
+        }
+
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1));
+
+        var result = index.search(target, 5);
+        assertEquals(5, result.size());
+        assertTrue(result.stream().noneMatch(neighbor -> neighbor.id() == 1));
+        assertEquals(98, index.size());
+    }
+
+    @Test
+    void testRebuildAfterMassRemovalKeepsLiveVectors() {
+        var random = new Random(3);
+        var vectors = new float[200][];
+        for (var i = 0; i < vectors.length; i++) {
+            vectors[i] = randomVector(random);
+            index.add(i, vectors[i]);
+        }
+        for (var i = 0; i < 150; i++) {
+            index.remove(i);
+        }
+
+        assertEquals(50, index.size());
+        for (var i = 150; i < 200; i++) {
+            assertEquals(i, index.search(vectors[i], 1).getFirst().id());
+        }
+    }
+
+    @Test
+    void testMovedVectorIsFoundAtItsNewPosition() {
+        var random = new Random(11);
+        for (var i = 1; i < 300; i++) {
+            index.add(i, randomVector(random));
+        }
+
+        var centroid = randomVector(random);
+        index.add(0, centroid);
+        for (var merge = 0; merge < 100; merge++) {
+            var previous = centroid;
+            centroid = randomVector(random);
+            index.add(0, centroid);
+
+            assertEquals(0, index.search(centroid, 1).getFirst().id(), "lost after move " + merge);
+            assertNotEquals(0, index.search(previous, 1).getFirst().id());
+        }
+
+        assertEquals(300, index.size());
+    }
+
+    @Test
+    void testReAddingSameVectorKeepsNode() {
+        index.add(1, new float[] {1f, 0f});
+        index.add(1, new float[] {2f, 0f});
+
+        assertEquals(1, index.size());
+        assertEquals(1, index.search(new float[] {1f, 0f}, 1).getFirst().id());
+    }
+
+    @Test
+    void testDimensionMismatchIsRejected() {
+        index.add(1, new float[] {1f, 0f});
+
+        assertThrows(IllegalArgumentException.class, () -> index.add(2, new float[] {1f, 0f, 0f}));
+        assertTrue(index.search(new float[] {1f, 0f, 0f}, 1).isEmpty());
+    }
+
+    private float[] randomVector(Random random) {
+        var vector = new float[DIMENSION];
+        for (var i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,57 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinHashLshFilterTest {
+
+    private MinHashLshFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new MinHashLshFilter(20, 3, 1);
+    }
+
+    @Test
+    void testSignatureIsDeterministicAndIgnoresCaseAndAccents() {
+        var first = filter.signature("Connexion impossible", "Erreur à la connexion sur mon compte");
+        var second = filter.signature("CONNEXION IMPOSSIBLE", "Erreur a la connexion sur mon compte !");
+
+        assertArrayEquals(first, second);
+        assertEquals(60, first.length);
+    }
+
+    @Test
+    void testNearDuplicatesShareABucket() {
+        filter.add(1L, filter.signature("Connexion impossible",
+                "Impossible de me connecter à mon compte depuis ce matin, erreur mot de passe"));
+
+        var candidates = filter.candidates(filter.signature("Connexion impossible",
+                "Impossible de me connecter à mon compte, erreur mot de passe invalide"));
+
+        assertTrue(candidates.contains(1L));
+    }
+
+    @Test
+    void testUnrelatedTicketsArePruned() {
+        filter.add(1L, filter.signature("Connexion impossible",
+                "Impossible de me connecter à mon compte depuis ce matin, erreur mot de passe"));
+
+        var candidates = filter.candidates(filter.signature("Crash mobile",
+                "L'application Android plante au démarrage après la dernière mise à jour"));
+
+        assertFalse(candidates.contains(1L));
+    }
+
+    @Test
+    void testRemovedGroupIsNoLongerACandidate() {
+        var signature = filter.signature("Serveur down", "Le serveur de production ne répond plus");
+        filter.add(1L, signature);
+        filter.remove(1L);
+
+        assertTrue(filter.candidates(signature).isEmpty());
+        assertEquals(0, filter.size());
+    }
+}
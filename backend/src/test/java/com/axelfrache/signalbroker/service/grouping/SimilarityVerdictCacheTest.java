@@ -0,0 +1,61 @@
+package com.axelfrache.signalbroker.service.grouping;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarityVerdictCacheTest {
+
+    @Test
+    void testPairKeyIsOrderIndependent() {
+        var first = TicketFingerprint.of("L'application plante au démarrage");
+        var second = TicketFingerprint.of("Erreur 500 sur /api/login");
+
+        assertEquals(TicketFingerprint.pair(first, second), TicketFingerprint.pair(second, first));
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void testFingerprintIgnoresCasePunctuationAndAccents() {
+        assertEquals(TicketFingerprint.of("L'application   plante au démarrage !"),
+                TicketFingerprint.of("l application plante au demarrage"));
+    }
+
+    @Test
+    void testStoresAndReturnsVerdicts() {
+        var cache = new SimilarityVerdictCache(64, 60_000);
+
+        cache.put(42L, true);
+        cache.put(43L, false);
+
+        assertEquals(Boolean.TRUE, cache.get(42L));
+        assertEquals(Boolean.FALSE, cache.get(43L));
+        assertNull(cache.get(44L));
+        assertEquals(2, cache.size());
+        assertEquals(2.0 / 3.0, cache.hitRatio(), 1e-9);
+    }
+
+    @Test
+    void testExpiredVerdictsAreMisses() {
+        var cache = new SimilarityVerdictCache(64, -1);
+
+        cache.put(42L, true);
+
+        assertNull(cache.get(42L));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testSizeIsBoundedByCapacity() {
+        var cache = new SimilarityVerdictCache(64, 60_000);
+
+        for (var key = 1L; key <= 10_000; key++) {
+            cache.put(key, key % 2 == 0);
+        }
+
+        assertEquals(64, cache.capacity());
+        assertTrue(cache.size() <= 64);
+        assertEquals(64L * 17, cache.footprintBytes());
+        assertEquals(Boolean.FALSE, cache.get(9_999L));
+    }
+}
@@ -0,0 +1,244 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.config.properties.LabelingProperties;
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.model.kafka.LabeledTicketEvent;
+import com.axelfrache.signalbroker.service.EventPublisher;
+import com.axelfrache.signalbroker.service.LabelingService;
+import com.axelfrache.signalbroker.service.labeling.LabelingScheduler;
+import com.axelfrache.signalbroker.service.labeling.UrgencyEstimator;
+import com.axelfrache.signalbroker.service.llm.OllamaCircuitBreaker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FormattedEventConsumerTest {
+
+    private LabelingService labelingService;
+    private EventPublisher eventPublisher;
+    private OllamaCircuitBreaker circuitBreaker;
+    private LabelRetryRouter retryRouter;
+    private LabelerPauseController pauseController;
+    private LabelingScheduler scheduler;
+    private final Map<UUID, CompletableFuture<LabeledTicketEvent>> labeling = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        labelingService = mock(LabelingService.class);
+        eventPublisher = mock(EventPublisher.class);
+        circuitBreaker = mock(OllamaCircuitBreaker.class);
+        retryRouter = mock(LabelRetryRouter.class);
+        pauseController = mock(LabelerPauseController.class);
+        scheduler = mock(LabelingScheduler.class);
+        when(eventPublisher.publishLabeled(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(retryRouter.failed(any(), any(), anyInt())).thenReturn(CompletableFuture.completedFuture(null));
+        when(labelingService.labelAsync(any())).thenAnswer(invocation -> {
+            var future = new CompletableFuture<LabeledTicketEvent>();
+            labeling.put(invocation.<FormattedTicketEvent>getArgument(0).ticketId(), future);
+            return future;
+        });
+    }
+
+    @Test
+    void testEachTicketIsAcknowledgedWhenItsOutcomeIsPublished() {
+        var consumer = consumer(4, 4);
+        var first = ticket("a@example.com");
+        var second = ticket("b@example.com");
+        var firstAck = mock(Acknowledgment.class);
+        var secondAck = mock(Acknowledgment.class);
+
+        consumer.onFormatted(first, firstAck);
+        consumer.onFormatted(second, secondAck);
+        verifyNoInteractions(firstAck, secondAck);
+
+        // Out-of-order completion: the container commits offsets in order from these acks
+        labeling.get(second.ticketId()).complete(labeled(second));
+        verify(secondAck).acknowledge();
+        verifyNoInteractions(firstAck);
+
+        labeling.get(first.ticketId()).complete(labeled(first));
+        verify(firstAck).acknowledge();
+        verify(eventPublisher, times(2)).publishLabeled(any());
+    }
+
+    @Test
+    void testListenerDoesNotBlockAndPausesAtBacklogBound() {
+        var consumer = consumer(2, 1);
+        var tickets = new FormattedTicketEvent[] {ticket("a@example.com"), ticket("b@example.com"),
+                ticket("c@example.com")};
+
+        for (var ticket : tickets) {
+            consumer.onFormatted(ticket, mock(Acknowledgment.class));
+        }
+
+        verify(labelingService, times(2)).labelAsync(any());
+        verify(pauseController).saturated(true);
+
+        labeling.get(tickets[0].ticketId()).complete(labeled(tickets[0]));
+
+        verify(labelingService).labelAsync(tickets[2]);
+        verify(pauseController).saturated(false);
+    }
+
+    @Test
+    void testLabelingErrorIsRoutedAndFreesTheSlot() {
+        var consumer = consumer(1, 4);
+        var failing = ticket("a@example.com");
+        var next = ticket("b@example.com");
+        var failingAck = mock(Acknowledgment.class);
+
+        consumer.onFormatted(failing, failingAck);
+        consumer.onFormatted(next, mock(Acknowledgment.class));
+        verify(labelingService, never()).labelAsync(next);
+
+        var error = new IllegalStateException("invalid JSON from model");
+        labeling.get(failing.ticketId()).completeExceptionally(error);
+
+        verify(retryRouter).failed(eq(failing), any(), eq(1));
+        verify(failingAck).acknowledge();
+        verify(labelingService).labelAsync(next);
+    }
+
+    @Test
+    void testFailedLabeledSendFallsBackToRetryTier() {
+        var consumer = consumer(1, 4);
+        var ticket = ticket("a@example.com");
+        var ack = mock(Acknowledgment.class);
+        when(eventPublisher.publishLabeled(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        consumer.onFormatted(ticket, ack);
+        labeling.get(ticket.ticketId()).complete(labeled(ticket));
+
+        verify(retryRouter).failed(eq(ticket), any(), eq(1));
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    void testOutcomeIsNotAcknowledgedUntilItIsPublished() {
+        var consumer = consumer(1, 4);
+        var ticket = ticket("a@example.com");
+        var ack = mock(Acknowledgment.class);
+        when(eventPublisher.publishLabeled(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(retryRouter.failed(any(), any(), anyInt()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        consumer.onFormatted(ticket, ack);
+        labeling.get(ticket.ticketId()).complete(labeled(ticket));
+
+        verify(retryRouter).failed(eq(ticket), any(), eq(1));
+        verifyNoInteractions(ack);
+
+        // Delivered on the next back-off attempt, and only then committed
+        verify(ack, timeout(3_000)).acknowledge();
+        verify(eventPublisher, times(2)).publishLabeled(any());
+    }
+
+    @Test
+    void testBusyContactDoesNotHoldSlotsWhileItsTicketsWait() {
+        var consumer = consumer(LabelingProperties.Ordering.CONTACT, 2, 8);
+        var storm = new FormattedTicketEvent[] {ticket("storm@example.com"), ticket("storm@example.com"),
+                ticket("storm@example.com")};
+        var other = ticket("other@example.com");
+
+        for (var ticket : storm) {
+            consumer.onFormatted(ticket, mock(Acknowledgment.class));
+        }
+        consumer.onFormatted(other, mock(Acknowledgment.class));
+
+        verify(labelingService).labelAsync(storm[0]);
+        verify(labelingService).labelAsync(other);
+        verify(labelingService, never()).labelAsync(storm[1]);
+
+        labeling.get(storm[0].ticketId()).complete(labeled(storm[0]));
+        verify(labelingService).labelAsync(storm[1]);
+        verify(labelingService, never()).labelAsync(storm[2]);
+    }
+
+    @Test
+    void testDeferredTicketReleasesItsSlotDuringOutage() throws InterruptedException {
+        var consumer = consumer(1, 4);
+        var deferred = ticket("a@example.com");
+        var next = ticket("b@example.com");
+        var deferredAck = mock(Acknowledgment.class);
+        var outage = new IllegalStateException("circuit open");
+        when(circuitBreaker.shouldDefer(outage)).thenReturn(true);
+        when(circuitBreaker.retryDelayMs()).thenReturn(100L);
+
+        consumer.onFormatted(deferred, deferredAck);
+        consumer.onFormatted(next, mock(Acknowledgment.class));
+        var firstAttempt = labeling.get(deferred.ticketId());
+        firstAttempt.completeExceptionally(outage);
+
+        verify(labelingService).labelAsync(next);
+        verifyNoInteractions(deferredAck, retryRouter);
+
+        // Retried once the slot is free again, and only acknowledged when it is finally labeled
+        labeling.get(next.ticketId()).complete(labeled(next));
+        verify(labelingService, timeout(2_000).times(2)).labelAsync(deferred);
+        while (labeling.get(deferred.ticketId()) == firstAttempt) {
+            Thread.sleep(10);
+        }
+        labeling.get(deferred.ticketId()).complete(labeled(deferred));
+        verify(deferredAck).acknowledge();
+    }
+
+    @Test
+    void testPriorityModePausesInsteadOfBlockingWhenSchedulerIsFull() {
+        var properties = new LabelingProperties(LabelingProperties.Mode.PRIORITY, LabelingProperties.Ordering.NONE,
+                1, 0, null, null, null, new LabelingProperties.Scheduler(1, 30_000), null);
+        var consumer = new FormattedEventConsumer(labelingService, eventPublisher, properties, circuitBreaker,
+                scheduler, mock(UrgencyEstimator.class), retryRouter, pauseController);
+        var first = ticket("a@example.com");
+        var firstAck = mock(Acknowledgment.class);
+        var work = ArgumentCaptor.forClass(Runnable.class);
+
+        consumer.onFormatted(first, firstAck);
+        consumer.onFormatted(ticket("b@example.com"), mock(Acknowledgment.class));
+
+        verify(scheduler, times(2)).submit(any(), work.capture());
+        verify(pauseController).saturated(true);
+
+        when(labelingService.label(first)).thenReturn(labeled(first));
+        work.getAllValues().get(0).run();
+
+        verify(firstAck).acknowledge();
+        verify(pauseController).saturated(false);
+    }
+
+    private FormattedEventConsumer consumer(int maxInFlight, int maxQueued) {
+        return consumer(LabelingProperties.Ordering.NONE, maxInFlight, maxQueued);
+    }
+
+    private FormattedEventConsumer consumer(LabelingProperties.Ordering ordering, int maxInFlight, int maxQueued) {
+        var properties = new LabelingProperties(LabelingProperties.Mode.ASYNC, ordering,
+                maxInFlight, maxQueued, null, null, null, null, null);
+        return new FormattedEventConsumer(labelingService, eventPublisher, properties, circuitBreaker,
+                scheduler, mock(UrgencyEstimator.class), retryRouter, pauseController);
+    }
+
+    private static FormattedTicketEvent ticket(String contact) {
+        return new FormattedTicketEvent(UUID.randomUUID(), ChannelType.MAIL, Instant.now(), Instant.now(),
+                "Le paiement échoue", contact, 1);
+    }
+
+    private static LabeledTicketEvent labeled(FormattedTicketEvent ticket) {
+        return new LabeledTicketEvent(ticket.ticketId(), ticket.receivedAt(), Instant.now(), "Paiement",
+                ticket.body(), ticket.contact(), null, null, null, 0.9, 1L, 1);
+    }
+}
@@ -0,0 +1,72 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormattedTicketAvroSerdeTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+    private static final FormattedTicketEvent TICKET = new FormattedTicketEvent(UUID.randomUUID(),
+            ChannelType.WHATSAPP, Instant.parse("2026-03-02T08:15:30.123456Z"),
+            Instant.parse("2026-03-02T08:15:31.654321Z"), "Impossible de me connecter depuis ce matin",
+            "+33600000000", 1);
+
+    @Test
+    void testRecordMappingRoundTrips() throws IOException {
+        var decoded = FormattedTicketAvroSerde.fromRecord(decode(encode(FormattedTicketAvroSerde.toRecord(TICKET))));
+
+        assertEquals(TICKET, decoded);
+    }
+
+    @Test
+    void testAvroRecordIsSmallerThanJson() throws IOException {
+        var json = new JsonSerializer<FormattedTicketEvent>(MAPPER).serialize("support.formatted", TICKET);
+        // Confluent framing adds a magic byte and a 4-byte schema id
+        var avro = encode(FormattedTicketAvroSerde.toRecord(TICKET)).length + 5;
+
+        assertTrue(avro * 2 < json.length, "avro=" + avro + " json=" + json.length);
+    }
+
+    @Test
+    void testJsonRecordsStillDeserialize() {
+        var json = new JsonDeserializer<>(FormattedTicketEvent.class, MAPPER);
+        json.addTrustedPackages("com.axelfrache.signalbroker.*");
+        var deserializer = new FormattedTicketAvroSerde("mock://test").deserializer(json);
+        var headers = new RecordHeaders();
+        var data = new JsonSerializer<FormattedTicketEvent>(MAPPER).serialize("support.formatted", headers, TICKET);
+
+        assertEquals(TICKET, deserializer.deserialize("support.formatted", headers, data));
+        assertNull(deserializer.deserialize("support.formatted", headers, (byte[]) null));
+    }
+
+    private static byte[] encode(GenericRecord record) throws IOException {
+        var out = new ByteArrayOutputStream();
+        var encoder = EncoderFactory.get().binaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(FormattedTicketAvroSerde.SCHEMA).write(record, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    private static GenericRecord decode(byte[] data) throws IOException {
+        return new GenericDatumReader<GenericRecord>(FormattedTicketAvroSerde.SCHEMA)
+                .read(null, DecoderFactory.get().binaryDecoder(data, null));
+    }
+}
@@ -0,0 +1,124 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import com.axelfrache.signalbroker.exception.FormattingException;
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.enums.ProcessingStage;
+import com.axelfrache.signalbroker.model.kafka.DlqEvent;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.model.kafka.RawInboundEvent;
+import com.axelfrache.signalbroker.service.FormattingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormatterTopologyTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, RawInboundEvent> whatsappRaw;
+    private TestInputTopic<String, RawInboundEvent> mailRaw;
+    private TestOutputTopic<String, FormattedTicketEvent> formatted;
+    private TestOutputTopic<String, DlqEvent> whatsappDlq;
+
+    @BeforeEach
+    void setUp() {
+        var topics = new KafkaAppProperties.Topics(
+                new KafkaAppProperties.ChannelTopics("support.whatsapp.raw", "support.whatsapp.format.dlq"),
+                new KafkaAppProperties.ChannelTopics("support.mail.raw", "support.mail.format.dlq"),
+                "support.formatted", "support.labeled", "support.formatted.retry", "support.label.dlq", null, null,
+                null);
+        var properties = new KafkaAppProperties(null, null, null, null, topics, null, null, null,
+                new KafkaAppProperties.Serialization(KafkaAppProperties.Serialization.Format.JSON), null);
+        FormattingService formattingService = raw -> {
+            if (raw.body().isBlank()) {
+                throw new FormattingException("Body cannot be empty");
+            }
+            return new FormattedTicketEvent(UUID.randomUUID(), raw.channelType(), raw.timestamp(), Instant.now(),
+                    raw.body().trim(), raw.contact(), 1);
+        };
+
+        var builder = new StreamsBuilder();
+        new FormatterTopology(formattingService, properties, MAPPER, new FormattedTicketAvroSerde("mock://test"))
+                .build(builder);
+
+        var config = new Properties();
+        config.put(StreamsConfig.APPLICATION_ID_CONFIG, "formatter-test");
+        config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        config.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, StreamsConfig.EXACTLY_ONCE_V2);
+        driver = new TopologyTestDriver(builder.build(), config);
+
+        whatsappRaw = driver.createInputTopic("support.whatsapp.raw", new StringSerializer(),
+                new JsonSerializer<>(MAPPER));
+        mailRaw = driver.createInputTopic("support.mail.raw", new StringSerializer(), new JsonSerializer<>(MAPPER));
+        formatted = driver.createOutputTopic("support.formatted", new StringDeserializer(),
+                deserializer(FormattedTicketEvent.class));
+        whatsappDlq = driver.createOutputTopic("support.whatsapp.format.dlq", new StringDeserializer(),
+                deserializer(DlqEvent.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    void testFormattedEventsAreKeyedByTicketId() {
+        whatsappRaw.pipeInput("+33600000000", raw(ChannelType.WHATSAPP, "  Bonjour  "));
+        mailRaw.pipeInput("user@example.com", raw(ChannelType.MAIL, "Facture en double"));
+
+        var records = formatted.readKeyValuesToList();
+
+        assertEquals(2, records.size());
+        assertEquals("Bonjour", records.get(0).value.body());
+        assertEquals(records.get(0).value.ticketId().toString(), records.get(0).key);
+        assertEquals(ChannelType.MAIL, records.get(1).value.channel());
+        assertTrue(whatsappDlq.isEmpty());
+    }
+
+    @Test
+    void testFormattingFailureIsBranchedToChannelDlq() {
+        var broken = raw(ChannelType.WHATSAPP, " ");
+        whatsappRaw.pipeInput("+33600000000", broken);
+
+        var dlq = whatsappDlq.readKeyValue();
+
+        assertTrue(formatted.isEmpty());
+        assertEquals(dlq.value.eventId().toString(), dlq.key);
+        assertEquals(ProcessingStage.FORMAT, dlq.value.stage());
+        assertEquals("support.whatsapp.raw", dlq.value.originalTopic());
+        assertEquals("Body cannot be empty", dlq.value.reason());
+        assertEquals(broken.eventId().toString(), dlq.value.payload().get("eventId").asText());
+        assertEquals(2, dlq.value.schemaVersion());
+    }
+
+    private static <T> JsonDeserializer<T> deserializer(Class<T> type) {
+        var deserializer = new JsonDeserializer<>(type, MAPPER);
+        deserializer.addTrustedPackages("com.axelfrache.signalbroker.*");
+        return deserializer;
+    }
+
+    private static RawInboundEvent raw(ChannelType channel, String body) {
+        return new RawInboundEvent(UUID.randomUUID(), channel, "msg-1", Instant.now(), "+33600000000", body,
+                Map.of(), 1);
+    }
+}
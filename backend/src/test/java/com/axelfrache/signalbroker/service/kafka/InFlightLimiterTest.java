@@ -0,0 +1,53 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InFlightLimiterTest {
+
+    private final InFlightLimiter limiter = new InFlightLimiter(2);
+
+    @Test
+    void testTasksBeyondLimitWaitInSubmissionOrder() {
+        var running = new ArrayList<CompletableFuture<Void>>();
+        var started = new ArrayList<Integer>();
+        for (var i = 0; i < 4; i++) {
+            var id = i;
+            limiter.submit(() -> {
+                started.add(id);
+                var task = new CompletableFuture<Void>();
+                running.add(task);
+                return task;
+            });
+        }
+
+        assertEquals(List.of(0, 1), started);
+        assertEquals(2, limiter.running());
+        assertEquals(2, limiter.waiting());
+
+        running.get(1).complete(null);
+        assertEquals(List.of(0, 1, 2), started);
+
+        running.get(0).complete(null);
+        assertEquals(List.of(0, 1, 2, 3), started);
+        assertEquals(0, limiter.waiting());
+    }
+
+    @Test
+    void testFailedTaskFreesItsSlot() {
+        var failed = limiter.submit(() -> CompletableFuture.failedFuture(new IllegalStateException("boom")));
+        var thrown = limiter.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertTrue(thrown.isCompletedExceptionally());
+        assertEquals(0, limiter.running());
+        assertEquals("ok", limiter.submit(() -> CompletableFuture.completedFuture("ok")).join());
+    }
+}
@@ -0,0 +1,86 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class KafkaEventPublisherTest {
+
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    private SimpleMeterRegistry registry;
+    private KafkaEventPublisher publisher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        registry = new SimpleMeterRegistry();
+        var topics = new KafkaAppProperties.Topics(null, null, "support.formatted", "support.labeled",
+                "support.formatted.retry", "support.labeled.dlq", null, null, null);
+        var producer = new KafkaAppProperties.Producer(true, "all", 10, 65_536, "zstd", 1, 50);
+        publisher = new KafkaEventPublisher(kafkaTemplate, kafkaTemplate,
+                new KafkaAppProperties(null, null, null, null, topics, null, producer, null, null, null), registry);
+    }
+
+    @Test
+    void testSendCompletesOnBrokerAcknowledgment() {
+        var acked = new CompletableFuture<SendResult<String, Object>>();
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(acked);
+
+        var sent = publisher.publishFormatted(formatted());
+
+        assertFalse(sent.isDone());
+        assertEquals(1.0, registry.get("kafka.publish.in.flight").gauge().value());
+        acked.complete(null);
+        assertTrue(sent.isDone());
+        assertEquals(0.0, registry.get("kafka.publish.in.flight").gauge().value());
+    }
+
+    @Test
+    void testFullWindowFailsAfterMaxBlock() {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(new CompletableFuture<>());
+
+        publisher.publishFormatted(formatted());
+        var rejected = publisher.publishFormatted(formatted());
+
+        var error = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertEquals(1, registry.get("kafka.publish.errors").tag("topic", "support.formatted").counter().count());
+    }
+
+    @Test
+    void testBrokerFailureReleasesPermitAndSurfaces() {
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        var failed = publisher.publishFormatted(formatted());
+        var next = publisher.publishFormatted(formatted());
+
+        var error = assertThrows(CompletionException.class, failed::join);
+        assertEquals("broker down", error.getCause().getMessage());
+        assertNull(next.join());
+        assertEquals(1, registry.get("kafka.publish.latency").tag("outcome", "error").timer().count());
+    }
+
+    private static FormattedTicketEvent formatted() {
+        return new FormattedTicketEvent(UUID.randomUUID(), ChannelType.MAIL, Instant.now(), Instant.now(),
+                "Le paiement échoue", "user@example.com", 1);
+    }
+}
@@ -0,0 +1,66 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyOrderedExecutorTest {
+
+    private final KeyOrderedExecutor executor = new KeyOrderedExecutor();
+
+    @Test
+    void testSameKeyRunsInSubmissionOrder() {
+        var first = new CompletableFuture<Void>();
+        var started = Collections.synchronizedList(new ArrayList<String>());
+
+        executor.submit("alice", () -> {
+            started.add("a1");
+            return first;
+        });
+        var second = executor.submit("alice", () -> {
+            started.add("a2");
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertEquals(List.of("a1"), started);
+        first.complete(null);
+        second.join();
+        assertEquals(List.of("a1", "a2"), started);
+        assertEquals(0, executor.pendingKeys());
+    }
+
+    @Test
+    void testDifferentKeysRunConcurrently() {
+        var blocked = new CompletableFuture<Void>();
+        var started = Collections.synchronizedList(new ArrayList<String>());
+
+        executor.submit("alice", () -> {
+            started.add("alice");
+            return blocked;
+        });
+        executor.submit("bob", () -> {
+            started.add("bob");
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertEquals(List.of("alice", "bob"), started);
+        assertEquals(1, executor.pendingKeys());
+        blocked.complete(null);
+    }
+
+    @Test
+    void testFailureDoesNotBlockTheNextTaskForTheKey() {
+        var failed = executor.submit("alice", () -> {
+            throw new IllegalStateException("boom");
+        });
+        var next = executor.submit("alice", () -> CompletableFuture.completedFuture(null));
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertDoesNotThrow(next::join);
+    }
+}
@@ -0,0 +1,122 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.model.kafka.LabeledTicketEvent;
+import com.axelfrache.signalbroker.service.EventPublisher;
+import com.axelfrache.signalbroker.service.LabelingService;
+import com.axelfrache.signalbroker.service.llm.OllamaCircuitBreaker;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.AcknowledgingConsumerAwareMessageListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LabelRetryConsumerTest {
+
+    private static final FormattedTicketEvent TICKET = new FormattedTicketEvent(UUID.randomUUID(), ChannelType.MAIL,
+            Instant.now(), Instant.now(), "Le paiement échoue", "user@example.com", 1);
+
+    private LabelingService labelingService;
+    private EventPublisher eventPublisher;
+    private OllamaCircuitBreaker circuitBreaker;
+    private LabelRetryRouter retryRouter;
+    private Acknowledgment ack;
+    private LabelRetryConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        labelingService = mock(LabelingService.class);
+        eventPublisher = mock(EventPublisher.class);
+        circuitBreaker = mock(OllamaCircuitBreaker.class);
+        retryRouter = mock(LabelRetryRouter.class);
+        ack = mock(Acknowledgment.class);
+        when(eventPublisher.publishLabeled(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(retryRouter.failed(any(), any(), anyInt())).thenReturn(CompletableFuture.completedFuture(null));
+        consumer = new LabelRetryConsumer(labelingService, eventPublisher, circuitBreaker, retryRouter);
+    }
+
+    @Test
+    void testRecordIsHeldUntilItsRetryTime() {
+        consumer.retry(record(2, System.currentTimeMillis() + 5_000), ack);
+
+        verify(ack).nack(argThat((Duration pause) -> pause.toMillis() > 0 && pause.toMillis() <= 5_000));
+        verifyNoInteractions(labelingService);
+    }
+
+    @Test
+    void testDueRecordIsLabeledAndCountedAsRecovered() {
+        var labeled = mock(LabeledTicketEvent.class);
+        when(labelingService.label(TICKET)).thenReturn(labeled);
+
+        consumer.retry(record(2, System.currentTimeMillis() - 1), ack);
+
+        verify(eventPublisher).publishLabeled(labeled);
+        verify(retryRouter).recovered(2);
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    void testFailedRetryMovesToNextTier() {
+        var error = new IllegalStateException("timeout");
+        when(labelingService.label(TICKET)).thenThrow(error);
+
+        consumer.retry(record(1, System.currentTimeMillis() - 1), ack);
+
+        verify(retryRouter).failed(TICKET, error, 2);
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    void testOllamaOutageDoesNotConsumeAnAttempt() {
+        when(labelingService.label(TICKET)).thenThrow(new IllegalStateException("down"));
+        when(circuitBreaker.shouldDefer(any())).thenReturn(true);
+        when(circuitBreaker.retryDelayMs()).thenReturn(1_000L);
+
+        consumer.retry(record(1, System.currentTimeMillis() - 1), ack);
+
+        verify(ack).nack(Duration.ofMillis(1_000));
+        verify(retryRouter, never()).failed(any(), any(), eq(2));
+    }
+
+    @Test
+    void testTierEndpointDispatchesToRetry() {
+        var factory = new ConcurrentKafkaListenerContainerFactory<String, FormattedTicketEvent>();
+        factory.setConsumerFactory(mock(ConsumerFactory.class));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+
+        var container = factory.createListenerContainer(consumer.endpoint("support.formatted.retry", "labeler", 4));
+        @SuppressWarnings("unchecked")
+        var listener = (AcknowledgingConsumerAwareMessageListener<String, FormattedTicketEvent>)
+                container.getContainerProperties().getMessageListener();
+        listener.onMessage(record(4, System.currentTimeMillis() + 5_000), ack, null);
+
+        assertEquals("label-retry-4", container.getListenerId());
+        assertArrayEquals(new String[] {"support.formatted.retry-4"}, container.getContainerProperties().getTopics());
+        verify(ack).nack(any());
+    }
+
+    private static ConsumerRecord<String, FormattedTicketEvent> record(int attempt, long retryAt) {
+        var record = new ConsumerRecord<>("support.formatted.retry-" + attempt, 0, 0L,
+                TICKET.ticketId().toString(), TICKET);
+        record.headers()
+                .add(LabelRetryConsumer.ATTEMPT_HEADER, Integer.toString(attempt).getBytes(StandardCharsets.UTF_8))
+                .add(LabelRetryConsumer.RETRY_AT_HEADER, Long.toString(retryAt).getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
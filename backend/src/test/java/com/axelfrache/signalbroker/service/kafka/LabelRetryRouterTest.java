@@ -0,0 +1,92 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.config.properties.LabelingProperties;
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.service.EventPublisher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LabelRetryRouterTest {
+
+    private static final FormattedTicketEvent TICKET = new FormattedTicketEvent(UUID.randomUUID(), ChannelType.MAIL,
+            Instant.now(), Instant.now(), "Le paiement échoue", "user@example.com", 1);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private EventPublisher eventPublisher;
+    private SimpleMeterRegistry registry;
+    private LabelRetryRouter router;
+
+    @BeforeEach
+    void setUp() {
+        eventPublisher = mock(EventPublisher.class);
+        when(eventPublisher.publishLabelRetry(any(), anyInt(), anyLong(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(eventPublisher.publishLabelDlq(any())).thenReturn(CompletableFuture.completedFuture(null));
+        registry = new SimpleMeterRegistry();
+        router = new LabelRetryRouter(eventPublisher, properties(true), MAPPER, registry);
+    }
+
+    @Test
+    void testFailuresClimbTheRetryTiers() {
+        router.failed(TICKET, new IllegalStateException("timeout"), 1);
+        router.failed(TICKET, new IllegalStateException("timeout"), 3);
+
+        verify(eventPublisher).publishLabelRetry(TICKET, 1, 10_000L, "timeout");
+        verify(eventPublisher).publishLabelRetry(TICKET, 3, 600_000L, "timeout");
+        verify(eventPublisher, never()).publishLabelDlq(any());
+        assertEquals(1, registry.get("labeling.retry.scheduled").tag("tier", "3").counter().count());
+    }
+
+    @Test
+    void testExhaustedRetriesGoToDlqWithAttemptCount() {
+        router.failed(TICKET, new IllegalStateException("still failing"), 4);
+
+        verify(eventPublisher).publishLabelDlq(argThat(dlq -> dlq.attempt() == 4 && dlq.reason().equals("still failing")
+                && dlq.schemaVersion() == 2));
+        verify(eventPublisher, never()).publishLabelRetry(any(), anyInt(), anyLong(), anyString());
+    }
+
+    @Test
+    void testSuccessRatioCountsRecoveredAgainstExhausted() {
+        router.recovered(1);
+        router.recovered(2);
+        router.recovered(2);
+        router.failed(TICKET, new IllegalStateException("still failing"), 4);
+
+        assertEquals(0.75, router.successRatio(), 1e-9);
+        assertEquals(2, registry.get("labeling.retry.recovered").tag("tier", "2").counter().count());
+    }
+
+    @Test
+    void testDisabledRetriesGoStraightToDlq() {
+        var direct = new LabelRetryRouter(eventPublisher, properties(false), MAPPER, registry);
+
+        direct.failed(TICKET, new IllegalStateException("bad"), 1);
+
+        verify(eventPublisher).publishLabelDlq(argThat(dlq -> dlq.attempt() == 1));
+        verify(eventPublisher, never()).publishLabelRetry(any(), anyInt(), anyLong(), eq("bad"));
+    }
+
+    private static LabelingProperties properties(boolean retryEnabled) {
+        return new LabelingProperties(LabelingProperties.Mode.SYNC, null, 1, 0, null, null, null, null,
+                new LabelingProperties.Retry(retryEnabled, List.of(10_000L, 60_000L, 600_000L)));
+    }
+}
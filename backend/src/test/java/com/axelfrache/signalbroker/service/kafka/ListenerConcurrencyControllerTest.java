@@ -0,0 +1,37 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListenerConcurrencyControllerTest {
+
+    private static final KafkaAppProperties.Autoscaling CONFIG =
+            new KafkaAppProperties.Autoscaling(true, 15_000, 120_000, 8, 500, 50, 60);
+
+    @Test
+    void testScalesUpWhenLagWillNotDrainInTime() {
+        // 12 000 records at 100/s is two minutes of lag
+        assertEquals(3, ListenerConcurrencyController.desiredConcurrency(2, 2, 8, 12_000, 100, CONFIG));
+        assertEquals(3, ListenerConcurrencyController.desiredConcurrency(2, 2, 8, 1_000, 0, CONFIG));
+    }
+
+    @Test
+    void testHoldsWhenThroughputKeepsUp() {
+        assertEquals(4, ListenerConcurrencyController.desiredConcurrency(4, 2, 8, 12_000, 500, CONFIG));
+        assertEquals(4, ListenerConcurrencyController.desiredConcurrency(4, 2, 8, 200, 0, CONFIG));
+    }
+
+    @Test
+    void testScalesDownOnceCaughtUpButNotBelowMinimum() {
+        assertEquals(3, ListenerConcurrencyController.desiredConcurrency(4, 2, 8, 10, 50, CONFIG));
+        assertEquals(2, ListenerConcurrencyController.desiredConcurrency(2, 2, 8, 0, 0, CONFIG));
+    }
+
+    @Test
+    void testNeverExceedsPartitionBound() {
+        assertEquals(3, ListenerConcurrencyController.desiredConcurrency(3, 1, 3, 50_000, 10, CONFIG));
+        assertEquals(3, ListenerConcurrencyController.desiredConcurrency(5, 1, 3, 200, 10, CONFIG));
+    }
+}
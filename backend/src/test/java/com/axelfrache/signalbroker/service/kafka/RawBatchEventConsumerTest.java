@@ -0,0 +1,93 @@
+package com.axelfrache.signalbroker.service.kafka;
+
+import com.axelfrache.signalbroker.config.properties.KafkaAppProperties;
+import com.axelfrache.signalbroker.exception.FormattingException;
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.model.kafka.RawInboundEvent;
+import com.axelfrache.signalbroker.service.EventPublisher;
+import com.axelfrache.signalbroker.service.FormattingService;
+import com.axelfrache.signalbroker.service.dedupe.DedupeStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RawBatchEventConsumerTest {
+
+    private FormattingService formattingService;
+    private EventPublisher eventPublisher;
+    private Acknowledgment ack;
+    private RawBatchEventConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        formattingService = mock(FormattingService.class);
+        eventPublisher = mock(EventPublisher.class);
+        ack = mock(Acknowledgment.class);
+        var properties = new KafkaAppProperties(null, null, null, null, null,
+                new KafkaAppProperties.Batch(true, 500, 1_000), null, null, null, null);
+        consumer = new RawBatchEventConsumer(formattingService, eventPublisher, mock(DedupeStore.class), properties,
+                new ObjectMapper().registerModule(new JavaTimeModule()), new SimpleMeterRegistry());
+
+        when(formattingService.format(any())).thenAnswer(invocation -> formatted(invocation.getArgument(0)));
+        when(eventPublisher.publishFormatted(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(eventPublisher.publishMailFormatDlq(any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void testBatchIsPublishedAndAcknowledgedOnce() {
+        consumer.onMailRaw(List.of(raw("a"), raw("b"), raw("c")), ack);
+
+        verify(eventPublisher, times(3)).publishFormatted(any());
+        verify(ack, times(1)).acknowledge();
+    }
+
+    @Test
+    void testFormattingFailureGoesToDlqWithoutFailingTheBatch() {
+        var broken = raw("broken");
+        when(formattingService.format(broken)).thenThrow(new FormattingException("bad body"));
+
+        consumer.onMailRaw(List.of(raw("a"), broken, raw("c")), ack);
+
+        verify(eventPublisher, times(2)).publishFormatted(any());
+        verify(eventPublisher).publishMailFormatDlq(argThat(dlq -> dlq.reason().equals("bad body")));
+        verify(ack, times(1)).acknowledge();
+    }
+
+    @Test
+    void testSendFailureReportsFailedIndexAndSkipsAck() {
+        var second = raw("b");
+        when(eventPublisher.publishFormatted(argThat(event -> event != null && event.body().equals("b"))))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        var error = assertThrows(BatchListenerFailedException.class,
+                () -> consumer.onMailRaw(List.of(raw("a"), second, raw("c")), ack));
+
+        assertEquals(1, error.getIndex());
+        verify(ack, never()).acknowledge();
+    }
+
+    private static RawInboundEvent raw(String body) {
+        return new RawInboundEvent(UUID.randomUUID(), ChannelType.MAIL, "msg-" + body, Instant.now(),
+                "user@example.com", body, Map.of(), 1);
+    }
+
+    private static FormattedTicketEvent formatted(RawInboundEvent raw) {
+        return new FormattedTicketEvent(UUID.randomUUID(), raw.channelType(), raw.timestamp(), Instant.now(),
+                raw.body(), raw.contact(), 1);
+    }
+}
@@ -0,0 +1,101 @@
+package com.axelfrache.signalbroker.service.labeling;
+
+import com.axelfrache.signalbroker.config.properties.LabelingProperties;
+import com.axelfrache.signalbroker.model.enums.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LabelingSchedulerTest {
+
+    private static final long AGING_MS = 30_000;
+
+    private SimpleMeterRegistry registry;
+    private LabelingScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        scheduler = new LabelingScheduler(properties(LabelingProperties.Mode.PRIORITY, 1, 10), registry);
+    }
+
+    @Test
+    void testHigherPriorityIsTakenFirst() throws InterruptedException {
+        var now = System.currentTimeMillis();
+        scheduler.enqueue(Priority.P3, now, () -> { });
+        scheduler.enqueue(Priority.P2, now, () -> { });
+        scheduler.enqueue(Priority.P0, now + 10, () -> { });
+        scheduler.enqueue(Priority.P1, now, () -> { });
+
+        assertEquals(List.of(Priority.P0, Priority.P1, Priority.P2, Priority.P3), drain(4));
+    }
+
+    @Test
+    void testAgingLetsOldLowPriorityWorkOvertake() throws InterruptedException {
+        var now = System.currentTimeMillis();
+        scheduler.enqueue(Priority.P3, now - 4 * AGING_MS, () -> { });
+        scheduler.enqueue(Priority.P0, now, () -> { });
+
+        assertEquals(List.of(Priority.P3, Priority.P0), drain(2));
+    }
+
+    @Test
+    void testSamePriorityKeepsArrivalOrder() throws InterruptedException {
+        var now = System.currentTimeMillis();
+        var order = new ArrayList<Integer>();
+        for (var i = 0; i < 5; i++) {
+            var index = i;
+            scheduler.enqueue(Priority.P2, now, () -> order.add(index));
+        }
+        for (var i = 0; i < 5; i++) {
+            scheduler.take().work().run();
+        }
+
+        assertEquals(List.of(0, 1, 2, 3, 4), order);
+    }
+
+    @Test
+    void testWorkersRunSubmittedTasksAndRecordWait() throws InterruptedException {
+        var done = new CountDownLatch(3);
+        scheduler.start();
+        try {
+            scheduler.submit(Priority.P0, done::countDown);
+            scheduler.submit(Priority.P2, done::countDown);
+            scheduler.submit(Priority.P2, done::countDown);
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(1, registry.get("labeling.queue.wait").tag("priority", "P0").timer().count());
+            assertEquals(2, registry.get("labeling.queue.wait").tag("priority", "P2").timer().count());
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    void testWorkersAreNotStartedOutsidePriorityMode() {
+        var asyncScheduler = new LabelingScheduler(properties(LabelingProperties.Mode.ASYNC, 1, 10), registry);
+        asyncScheduler.start();
+
+        assertFalse(asyncScheduler.isRunning());
+    }
+
+    private List<Priority> drain(int count) throws InterruptedException {
+        var taken = new ArrayList<Priority>();
+        for (var i = 0; i < count; i++) {
+            taken.add(scheduler.take().priority());
+        }
+        return taken;
+    }
+
+    private static LabelingProperties properties(LabelingProperties.Mode mode, int maxInFlight, int capacity) {
+        return new LabelingProperties(mode, null, maxInFlight, 0, null, null, null,
+                new LabelingProperties.Scheduler(capacity, AGING_MS), null);
+    }
+}
@@ -0,0 +1,54 @@
+package com.axelfrache.signalbroker.service.labeling;
+
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.enums.Priority;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrgencyEstimatorTest {
+
+    private final UrgencyEstimator estimator = new UrgencyEstimator();
+
+    @Test
+    void testOutageKeywordsAreP0() {
+        assertEquals(Priority.P0, estimator.estimate(ticket(ChannelType.MAIL, "a@x.fr",
+                "Le site est en panne depuis ce matin, c'est urgent !")));
+    }
+
+    @Test
+    void testBlockingKeywordsAreP1() {
+        assertEquals(Priority.P1, estimator.estimate(ticket(ChannelType.MAIL, "b@x.fr",
+                "Je suis bloqué, impossible de valider ma commande")));
+    }
+
+    @Test
+    void testSuggestionsAreP3() {
+        assertEquals(Priority.P3, estimator.estimate(ticket(ChannelType.MAIL, "c@x.fr",
+                "Petite suggestion pour l'export CSV")));
+    }
+
+    @Test
+    void testChatChannelRaisesNeutralTickets() {
+        assertEquals(Priority.P2, estimator.estimate(ticket(ChannelType.MAIL, "d@x.fr", "Bonjour, j'ai un souci")));
+        assertEquals(Priority.P1, estimator.estimate(ticket(ChannelType.WHATSAPP, "+33600000000",
+                "Bonjour, j'ai un souci")));
+    }
+
+    @Test
+    void testRepeatedContactIsEscalated() {
+        var contact = "e@x.fr";
+        assertEquals(Priority.P2, estimator.estimate(ticket(ChannelType.MAIL, contact, "Bonjour, j'ai un souci")));
+        assertEquals(Priority.P2, estimator.estimate(ticket(ChannelType.MAIL, contact, "Des nouvelles ?")));
+        assertEquals(Priority.P1, estimator.estimate(ticket(ChannelType.MAIL, contact, "Relance")));
+    }
+
+    private static FormattedTicketEvent ticket(ChannelType channel, String contact, String body) {
+        var now = Instant.now();
+        return new FormattedTicketEvent(UUID.randomUUID(), channel, now, now, body, contact, 1);
+    }
+}
@@ -0,0 +1,81 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.dto.ClassificationResult;
+import com.axelfrache.signalbroker.exception.OllamaClientException;
+import com.axelfrache.signalbroker.model.enums.Category;
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.enums.Priority;
+import com.axelfrache.signalbroker.model.enums.TicketType;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class BatchingClassifierClientTest {
+
+    private static final ClassificationResult BATCHED =
+            new ClassificationResult("Batched", Category.BACKEND, TicketType.BUG, Priority.P1, 0.9);
+    private static final ClassificationResult SINGLE =
+            new ClassificationResult("Single", Category.FRONTEND, TicketType.OTHER, Priority.P3, 0.6);
+
+    @Test
+    void testMissingBatchResultsFallBackToSingleRequests() {
+        var delegate = mock(OllamaClassifierClient.class);
+        when(delegate.classifyBatch(anyList())).thenReturn(Mono.just(Arrays.asList(BATCHED, null, BATCHED)));
+        when(delegate.classifyAsync(any())).thenReturn(Mono.just(SINGLE));
+        var client = new BatchingClassifierClient(delegate, 3, 5_000, new SimpleMeterRegistry());
+
+        var first = client.classifyAsync(formatted("a")).toFuture();
+        var second = client.classifyAsync(formatted("b")).toFuture();
+        var third = client.classifyAsync(formatted("c")).toFuture();
+
+        assertEquals(BATCHED, first.join());
+        assertEquals(SINGLE, second.join());
+        assertEquals(BATCHED, third.join());
+        verify(delegate, times(1)).classifyBatch(argThat(batch -> batch.size() == 3));
+        verify(delegate, times(1)).classifyAsync(argThat(formatted -> formatted.body().equals("b")));
+    }
+
+    @Test
+    void testPartialBatchIsFlushedAfterMaxWait() {
+        var delegate = mock(OllamaClassifierClient.class);
+        when(delegate.classifyAsync(any())).thenReturn(Mono.just(SINGLE));
+        var client = new BatchingClassifierClient(delegate, 8, 20, new SimpleMeterRegistry());
+
+        assertEquals(SINGLE, client.classify(formatted("alone")));
+        verify(delegate, never()).classifyBatch(anyList());
+    }
+
+    @Test
+    void testBatchErrorsArePropagatedToEveryTicket() {
+        var delegate = mock(OllamaClassifierClient.class);
+        when(delegate.classifyBatch(anyList()))
+                .thenReturn(Mono.error(new OllamaClientException("Ollama API error: 503")));
+        var client = new BatchingClassifierClient(delegate, 2, 5_000, new SimpleMeterRegistry());
+
+        var futures = List.of(
+                client.classifyAsync(formatted("a")).toFuture(),
+                client.classifyAsync(formatted("b")).toFuture());
+
+        for (var future : futures) {
+            var error = assertThrows(Exception.class, future::join);
+            assertInstanceOf(OllamaClientException.class, error.getCause());
+        }
+        verify(delegate, never()).classifyAsync(any());
+    }
+
+    private static FormattedTicketEvent formatted(String body) {
+        return new FormattedTicketEvent(UUID.randomUUID(), ChannelType.MAIL, Instant.now(), Instant.now(),
+                body, "user@example.com", 1);
+    }
+}
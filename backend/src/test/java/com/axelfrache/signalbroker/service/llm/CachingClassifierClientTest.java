@@ -0,0 +1,122 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.dto.ClassificationResult;
+import com.axelfrache.signalbroker.exception.OllamaClientException;
+import com.axelfrache.signalbroker.model.enums.Category;
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.enums.Priority;
+import com.axelfrache.signalbroker.model.enums.TicketType;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.axelfrache.signalbroker.service.ClassifierClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingClassifierClientTest {
+
+    private static final ClassificationResult RESULT =
+            new ClassificationResult("Login broken", Category.BACKEND, TicketType.BUG, Priority.P1, 0.9);
+
+    @Test
+    void testIdenticalBodiesAreClassifiedOnce() {
+        var calls = new AtomicInteger();
+        var client = client(formatted -> {
+            calls.incrementAndGet();
+            return RESULT;
+        }, 16, 60_000);
+
+        assertEquals(RESULT, client.classify(formatted("Impossible de se connecter")));
+        assertEquals(RESULT, client.classify(formatted("Impossible de se connecter")));
+        client.classify(formatted("Erreur 500 sur la page d'accueil"));
+
+        assertEquals(2, calls.get());
+        assertEquals(2, client.size());
+    }
+
+    @Test
+    void testConcurrentRequestsShareOneCall() {
+        var calls = new AtomicInteger();
+        var sink = Sinks.<ClassificationResult>one();
+        var client = new CachingClassifierClient(new ClassifierClient() {
+            @Override
+            public ClassificationResult classify(FormattedTicketEvent formatted) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Mono<ClassificationResult> classifyAsync(FormattedTicketEvent formatted) {
+                calls.incrementAndGet();
+                return sink.asMono();
+            }
+        }, "model", 16, 60_000, new SimpleMeterRegistry());
+
+        var first = client.classifyAsync(formatted("Same body")).toFuture();
+        var second = client.classifyAsync(formatted("Same body")).toFuture();
+        assertFalse(first.isDone());
+
+        sink.tryEmitValue(RESULT);
+
+        assertEquals(RESULT, first.join());
+        assertEquals(RESULT, second.join());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testFailuresAreNotCached() {
+        var calls = new AtomicInteger();
+        var client = client(formatted -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new OllamaClientException("Ollama API error: 503");
+            }
+            return RESULT;
+        }, 16, 60_000);
+
+        assertThrows(OllamaClientException.class, () -> client.classify(formatted("Body")));
+        assertEquals(RESULT, client.classify(formatted("Body")));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testLeastRecentlyUsedAndExpiredEntriesAreEvicted() {
+        var calls = new AtomicInteger();
+        var bounded = client(formatted -> {
+            calls.incrementAndGet();
+            return RESULT;
+        }, 2, 60_000);
+
+        bounded.classify(formatted("a"));
+        bounded.classify(formatted("b"));
+        bounded.classify(formatted("a"));
+        bounded.classify(formatted("c"));
+        bounded.classify(formatted("a"));
+        assertEquals(3, calls.get());
+        bounded.classify(formatted("b"));
+        assertEquals(4, calls.get());
+
+        calls.set(0);
+        var expiring = client(formatted -> {
+            calls.incrementAndGet();
+            return RESULT;
+        }, 16, -1);
+
+        expiring.classify(formatted("a"));
+        expiring.classify(formatted("a"));
+        assertEquals(2, calls.get());
+    }
+
+    private static CachingClassifierClient client(ClassifierClient delegate, int capacity, long ttlMillis) {
+        return new CachingClassifierClient(delegate, "model", capacity, ttlMillis, new SimpleMeterRegistry());
+    }
+
+    private static FormattedTicketEvent formatted(String body) {
+        return new FormattedTicketEvent(UUID.randomUUID(), ChannelType.MAIL, Instant.now(), Instant.now(),
+                body, "user@example.com", 1);
+    }
+}
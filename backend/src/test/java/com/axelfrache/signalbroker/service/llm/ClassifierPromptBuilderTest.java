@@ -0,0 +1,75 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.config.properties.OllamaProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassifierPromptBuilderTest {
+
+    private ClassifierPromptBuilder builder;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new OllamaProperties("http://localhost:11434", null, null, null, null, null,
+                new OllamaProperties.Prompt("30m", 100, 0.7));
+        builder = new ClassifierPromptBuilder(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testPromptsShareAByteIdenticalPrefix() {
+        var first = builder.single("Le site est lent");
+        var second = builder.single("Impossible de payer ma commande");
+
+        assertTrue(first.startsWith(ClassifierPromptBuilder.PREFIX));
+        assertTrue(second.startsWith(ClassifierPromptBuilder.PREFIX));
+        assertTrue(first.endsWith("Le site est lent\n"));
+        assertTrue(builder.batch(List.of("a", "b")).startsWith(ClassifierPromptBuilder.BATCH_PREFIX));
+    }
+
+    @Test
+    void testShortBodiesAreKeptAsIs() {
+        var body = "x".repeat(400);
+
+        assertEquals(body, builder.fit(body));
+    }
+
+    @Test
+    void testLongBodiesKeepHeadAndTailWithinBudget() {
+        var body = "Bonjour,\n" + "blabla ".repeat(500) + "\nCordialement, Jean";
+
+        var fitted = builder.fit(body);
+
+        assertTrue(ClassifierPromptBuilder.estimateTokens(fitted) <= 100);
+        assertTrue(fitted.startsWith("Bonjour,"));
+        assertTrue(fitted.endsWith("Cordialement, Jean"));
+        assertTrue(fitted.contains(ClassifierPromptBuilder.TRUNCATION_MARKER));
+    }
+
+    @Test
+    void testTruncationDoesNotSplitSurrogatePairs() {
+        var body = "\uD83D\uDE00".repeat(300);
+
+        var fitted = builder.fit(body);
+
+        var halves = fitted.replace("\uD83D\uDE00", "").chars().filter(c -> Character.isSurrogate((char) c)).count();
+        assertEquals(0, halves);
+        assertTrue(fitted.contains(ClassifierPromptBuilder.TRUNCATION_MARKER));
+    }
+
+    @Test
+    void testPromptSettingsAreValidated() {
+        try (var factory = Validation.buildDefaultValidatorFactory()) {
+            var validator = factory.getValidator();
+
+            assertTrue(validator.validate(new OllamaProperties.Prompt("30m", 100, 0.7)).isEmpty());
+            assertEquals(2, validator.validate(new OllamaProperties.Prompt("30m", 1, 1.5)).size());
+            assertEquals(1, validator.validate(new OllamaProperties.Prompt("30m", 100, -0.1)).size());
+        }
+    }
+}
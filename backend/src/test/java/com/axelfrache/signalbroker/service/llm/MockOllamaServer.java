@@ -0,0 +1,350 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.service.grouping.TicketFingerprint;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for the Ollama HTTP API serving {@code /api/generate}, {@code /api/embeddings} and
+ * {@code /api/tags}. Answers are derived from the prompt text only (keyword classification, token
+ * Jaccard for similarity, feature-hashed embeddings), so the same input always gets the same answer;
+ * latency is sampled from a seeded log-normal distribution with optional slow tail and error injection.
+ */
+@Slf4j
+public class MockOllamaServer implements AutoCloseable {
+
+    private static final Pattern BATCH_MESSAGE = Pattern.compile("(?m)^Message (\\d+):\\n");
+    private static final Pattern DESCRIPTION = Pattern.compile("(?m)^Description: (.*)$");
+    private static final Pattern GROUP = Pattern.compile("(?m)^GROUPE (\\d+):$");
+    private static final double SIMILARITY_THRESHOLD = 0.5;
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Random random;
+    private final Semaphore slots;
+    private final int dimensions;
+    private volatile LatencyProfile profile;
+    private final Map<String, AtomicInteger> requests = new HashMap<>();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    public MockOllamaServer(int port, LatencyProfile profile, long seed, int parallel, int dimensions)
+            throws IOException {
+        this.profile = profile;
+        this.random = new Random(seed);
+        this.slots = parallel > 0 ? new Semaphore(parallel, true) : null;
+        this.dimensions = dimensions;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        for (var path : List.of("/api/generate", "/api/embeddings", "/api/tags")) {
+            requests.put(path, new AtomicInteger());
+        }
+        server.createContext("/api/generate", exchange -> handle(exchange, this::generate));
+        server.createContext("/api/embeddings", exchange -> handle(exchange, this::embeddings));
+        server.createContext("/api/tags", exchange -> handle(exchange, body -> Map.of("models", List.of())));
+        server.setExecutor(executor);
+    }
+
+    public static MockOllamaServer start(LatencyProfile profile) throws IOException {
+        var server = new MockOllamaServer(0, profile, 42, 0, 768);
+        server.server.start();
+        return server;
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void profile(LatencyProfile profile) {
+        this.profile = profile;
+    }
+
+    public int requests(String path) {
+        return requests.get(path).get();
+    }
+
+    public int errors() {
+        return errors.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            requests.get(exchange.getHttpContext().getPath()).incrementAndGet();
+            var body = exchange.getRequestBody().readAllBytes();
+            var request = body.length > 0 ? mapper.readValue(body, Map.class) : Map.of();
+
+            var current = profile;
+            long latencyMs;
+            boolean fail;
+            synchronized (random) {
+                latencyMs = current.sampleLatencyMs(random);
+                fail = random.nextDouble() < current.errorRate();
+            }
+
+            if (slots != null) {
+                slots.acquireUninterruptibly();
+            }
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                if (slots != null) {
+                    slots.release();
+                }
+            }
+
+            if (fail) {
+                errors.incrementAndGet();
+                respond(exchange, 500, Map.of("error", "injected failure"));
+                return;
+            }
+            var response = new LinkedHashMap<String, Object>(handler.handle(request));
+            if (response.containsKey("response")) {
+                var prompt = String.valueOf(request.getOrDefault("prompt", ""));
+                var output = (String) response.get("response");
+                response.put("prompt_eval_count", estimateTokens(prompt));
+                response.put("prompt_eval_duration", latencyMs * 200_000);
+                response.put("eval_count", estimateTokens(output));
+                response.put("eval_duration", latencyMs * 800_000);
+            }
+            respond(exchange, 200, response);
+        } catch (Exception e) {
+            respond(exchange, 400, Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        var bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private Map<String, Object> generate(Map<?, ?> request) throws IOException {
+        var prompt = String.valueOf(request.get("prompt"));
+        String response;
+        if (prompt.startsWith(ClassifierPromptBuilder.PREFIX)) {
+            response = mapper.writeValueAsString(classify(prompt.substring(ClassifierPromptBuilder.PREFIX.length())));
+        } else if (prompt.startsWith(ClassifierPromptBuilder.BATCH_PREFIX)) {
+            response = mapper.writeValueAsString(Map.of("results", classifyBatch(prompt)));
+        } else if (prompt.contains("NOUVEAU TICKET:")) {
+            response = mapper.writeValueAsString(bestMatch(prompt));
+        } else if (prompt.contains("TICKET 1:") && prompt.contains("TICKET 2:")) {
+            var descriptions = descriptions(prompt);
+            response = similarity(descriptions.get(0), descriptions.get(1)) >= SIMILARITY_THRESHOLD ? "OUI" : "NON";
+        } else {
+            response = "{}";
+        }
+        return Map.of("model", String.valueOf(request.get("model")), "response", response, "done", true);
+    }
+
+    private Map<String, Object> embeddings(Map<?, ?> request) {
+        var vector = new float[dimensions];
+        for (var token : tokens(String.valueOf(request.get("prompt")))) {
+            var hash = TicketFingerprint.of(token);
+            vector[(int) Math.floorMod(hash, (long) dimensions)] += (hash >>> 63) == 0 ? 1f : -1f;
+        }
+        var norm = 0.0;
+        for (var value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            var scale = (float) (1 / Math.sqrt(norm));
+            for (var i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return Map.of("embedding", vector);
+    }
+
+    private List<Map<String, Object>> classifyBatch(String prompt) {
+        var results = new ArrayList<Map<String, Object>>();
+        var matcher = BATCH_MESSAGE.matcher(prompt);
+        var starts = new ArrayList<int[]>();
+        while (matcher.find()) {
+            starts.add(new int[] {Integer.parseInt(matcher.group(1)), matcher.start(), matcher.end()});
+        }
+        for (var i = 0; i < starts.size(); i++) {
+            var end = i + 1 < starts.size() ? starts.get(i + 1)[1] : prompt.length();
+            var result = new LinkedHashMap<String, Object>();
+            result.put("index", starts.get(i)[0]);
+            result.putAll(classify(prompt.substring(starts.get(i)[2], end)));
+            results.add(result);
+        }
+        return results;
+    }
+
+    private Map<String, Object> bestMatch(String prompt) {
+        var descriptions = descriptions(prompt);
+        var groupCount = (int) GROUP.matcher(prompt).results().count();
+        Integer best = null;
+        var bestScore = SIMILARITY_THRESHOLD;
+        for (var i = 0; i < groupCount && i + 1 < descriptions.size(); i++) {
+            var score = similarity(descriptions.getFirst(), descriptions.get(i + 1));
+            if (score >= bestScore) {
+                best = i + 1;
+                bestScore = score;
+            }
+        }
+        var response = new HashMap<String, Object>();
+        response.put("groupe", best);
+        return response;
+    }
+
+    static Map<String, Object> classify(String body) {
+        var normalized = " " + TicketFingerprint.normalize(body) + " ";
+        var result = new LinkedHashMap<String, Object>();
+        var firstLine = body.strip().lines().findFirst().orElse("");
+        result.put("subject", firstLine.length() > 80 ? firstLine.substring(0, 80) : firstLine);
+        result.put("category", containsAny(normalized, "ios", "android", "mobile", "application", "appli")
+                ? "MOBILE"
+                : containsAny(normalized, "serveur", "server", "dns", "deploiement", "certificat", "vpn")
+                        ? "INFRA"
+                        : containsAny(normalized, "page", "ecran", "bouton", "affichage", "navigateur")
+                                ? "FRONTEND"
+                                : "BACKEND");
+        result.put("ticketType", containsAny(normalized, "suggestion", "ajouter", "fonctionnalite", "serait bien")
+                ? "FEATURE"
+                : containsAny(normalized, "erreur", "error", "bug", "plante", "crash", "impossible", "panne")
+                        ? "BUG"
+                        : "OTHER");
+        result.put("priority", containsAny(normalized, "urgent", "production", "panne", "down", "hors service")
+                ? "P0"
+                : containsAny(normalized, "bloque", "impossible", "crash")
+                        ? "P1"
+                        : containsAny(normalized, "suggestion", "question")
+                                ? "P3"
+                                : "P2");
+        result.put("confidence", 0.9);
+        return result;
+    }
+
+    static double similarity(String first, String second) {
+        var a = tokens(first);
+        var b = tokens(second);
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0.0;
+        }
+        var intersection = new HashSet<>(a);
+        intersection.retainAll(b);
+        return (double) intersection.size() / (a.size() + b.size() - intersection.size());
+    }
+
+    private static List<String> descriptions(String prompt) {
+        return DESCRIPTION.matcher(prompt).results().map(match -> match.group(1)).toList();
+    }
+
+    private static Set<String> tokens(String text) {
+        var tokens = new HashSet<String>();
+        for (var token : TicketFingerprint.normalize(text).split(" ")) {
+            if (token.length() >= 3) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean containsAny(String normalized, String... keywords) {
+        return Arrays.stream(keywords).anyMatch(keyword -> normalized.contains(" " + keyword + " "));
+    }
+
+    private static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * Usage: {@code MockOllamaServer [--port=11434] [--profile=cpu] [--seed=42] [--parallel=0]
+     * [--dimensions=768] [--errorRate=..] [--slowTailRate=..] [--slowTailMs=..]}
+     */
+    public static void main(String[] args) throws Exception {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            var separator = arg.indexOf('=');
+            if (arg.startsWith("--") && separator > 2) {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+
+        var profile = LatencyProfile.named(options.getOrDefault("profile", "cpu"));
+        if (options.containsKey("errorRate") || options.containsKey("slowTailRate")
+                || options.containsKey("slowTailMs")) {
+            profile = new LatencyProfile(profile.medianMs(), profile.sigma(),
+                    Double.parseDouble(options.getOrDefault("errorRate", String.valueOf(profile.errorRate()))),
+                    Double.parseDouble(options.getOrDefault("slowTailRate", String.valueOf(profile.slowTailRate()))),
+                    Long.parseLong(options.getOrDefault("slowTailMs", String.valueOf(profile.slowTailMs()))));
+        }
+
+        var server = new MockOllamaServer(
+                Integer.parseInt(options.getOrDefault("port", "11434")),
+                profile,
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                Integer.parseInt(options.getOrDefault("parallel", "0")),
+                Integer.parseInt(options.getOrDefault("dimensions", "768")));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.server.start();
+        log.info("Mock Ollama listening on {} with {}", server.baseUrl(), profile);
+    }
+
+    /**
+     * Log-normal latency around {@code medianMs}; a {@code slowTailRate} fraction of requests gets an
+     * extra {@code slowTailMs}, and an {@code errorRate} fraction answers HTTP 500.
+     */
+    public record LatencyProfile(long medianMs, double sigma, double errorRate, double slowTailRate, long slowTailMs) {
+
+        public static final LatencyProfile INSTANT = new LatencyProfile(0, 0, 0, 0, 0);
+        public static final LatencyProfile GPU = new LatencyProfile(150, 0.3, 0, 0.005, 2_000);
+        public static final LatencyProfile CPU = new LatencyProfile(1_200, 0.4, 0, 0.01, 8_000);
+        public static final LatencyProfile FLAKY = new LatencyProfile(300, 0.6, 0.05, 0.05, 15_000);
+
+        public static LatencyProfile named(String name) {
+            return switch (name.toLowerCase(Locale.ROOT)) {
+                case "instant" -> INSTANT;
+                case "gpu" -> GPU;
+                case "cpu" -> CPU;
+                case "flaky" -> FLAKY;
+                default -> throw new IllegalArgumentException("Unknown latency profile " + name);
+            };
+        }
+
+        long sampleLatencyMs(Random random) {
+            var latency = medianMs * Math.exp(sigma * random.nextGaussian());
+            if (random.nextDouble() < slowTailRate) {
+                latency += slowTailMs;
+            }
+            return Math.round(latency);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Map<String, Object> handle(Map<?, ?> request) throws IOException;
+    }
+}
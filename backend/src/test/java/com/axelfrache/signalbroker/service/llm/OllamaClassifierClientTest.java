@@ -0,0 +1,90 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.config.properties.OllamaProperties;
+import com.axelfrache.signalbroker.exception.OllamaClientException;
+import com.axelfrache.signalbroker.model.enums.Category;
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.enums.Priority;
+import com.axelfrache.signalbroker.model.enums.TicketType;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OllamaClassifierClientTest {
+
+    private MockOllamaServer server;
+    private SimpleMeterRegistry registry;
+    private OllamaClassifierClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = MockOllamaServer.start(MockOllamaServer.LatencyProfile.INSTANT);
+        registry = new SimpleMeterRegistry();
+        var properties = new OllamaProperties(server.baseUrl(), List.of(server.baseUrl()),
+                new OllamaProperties.Model("classifier", "embedding"), null, null, null,
+                new OllamaProperties.Prompt("30m", 1024, 0.7));
+        client = new OllamaClassifierClient(WebClient.create(server.baseUrl()), properties, new ObjectMapper(),
+                new ClassifierPromptBuilder(properties, registry), registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testClassifiesSingleTicket() {
+        var result = client.classify(ticket("Le serveur de production est en panne, erreur 502 partout"));
+
+        assertEquals(Category.INFRA, result.category());
+        assertEquals(TicketType.BUG, result.ticketType());
+        assertEquals(Priority.P0, result.priority());
+        assertEquals(1, registry.get("ollama.prompt.tokens").tag("kind", "single").summary().count());
+    }
+
+    @Test
+    void testClassifiesBatchInOrder() {
+        var results = client.classifyBatch(List.of(
+                ticket("Le bouton valider ne fait rien sur la page panier"),
+                ticket("Suggestion : ajouter un mode sombre dans l'application android"))).block();
+
+        assertNotNull(results);
+        assertEquals(Category.FRONTEND, results.get(0).category());
+        assertEquals(Category.MOBILE, results.get(1).category());
+        assertEquals(TicketType.FEATURE, results.get(1).ticketType());
+        assertEquals(Priority.P3, results.get(1).priority());
+    }
+
+    @Test
+    void testInjectedErrorsSurfaceAsClientException() {
+        server.profile(new MockOllamaServer.LatencyProfile(0, 0, 1.0, 0, 0));
+
+        assertThrows(OllamaClientException.class, () -> client.classify(ticket("Bonjour")));
+        assertEquals(1, server.errors());
+    }
+
+    @Test
+    void testSimilarityAnswersAreDeterministic() {
+        var first = "Impossible de se connecter au dashboard depuis ce matin";
+        var second = "Depuis ce matin impossible de se connecter au dashboard";
+
+        assertTrue(MockOllamaServer.similarity(first, second) >= 0.5);
+        assertTrue(MockOllamaServer.similarity(first, "Erreur 404 sur la page facture") < 0.5);
+        assertEquals(MockOllamaServer.classify(first), MockOllamaServer.classify(first));
+    }
+
+    private static FormattedTicketEvent ticket(String body) {
+        var now = Instant.now();
+        return new FormattedTicketEvent(UUID.randomUUID(), ChannelType.MAIL, now, now, body, "user@example.com", 1);
+    }
+}
@@ -0,0 +1,101 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.config.properties.OllamaProperties;
+import com.axelfrache.signalbroker.exception.OllamaUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OllamaConcurrencyLimiterTest {
+
+    private static final ClientRequest REQUEST =
+            ClientRequest.create(HttpMethod.POST, URI.create("http://localhost:11434/api/generate")).build();
+
+    private final ArrayList<OllamaCircuitBreaker.StateChanged> transitions = new ArrayList<>();
+    private OllamaCircuitBreaker circuitBreaker;
+    private OllamaConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new OllamaProperties("http://localhost:11434", null, null, null,
+                new OllamaProperties.Limiter(4, 1, 8, 0.5, 2.0, 200, 1_000),
+                new OllamaProperties.CircuitBreaker(3, 60_000), null);
+        var registry = new SimpleMeterRegistry();
+        circuitBreaker = new OllamaCircuitBreaker(event -> transitions.add((OllamaCircuitBreaker.StateChanged) event),
+                properties, registry);
+        limiter = new OllamaConcurrencyLimiter(properties, circuitBreaker, registry);
+    }
+
+    @Test
+    void testRequestsOverTheLimitWaitForAPermit() {
+        var gate = Sinks.<ClientResponse>one();
+        ExchangeFunction slow = request -> gate.asMono();
+
+        var pending = new ArrayList<CompletableFuture<ClientResponse>>();
+        for (var i = 0; i < 5; i++) {
+            pending.add(limiter.filter(REQUEST, slow).toFuture());
+        }
+        assertEquals(4, limiter.inFlight());
+
+        gate.tryEmitValue(ClientResponse.create(HttpStatus.OK).build());
+        pending.forEach(CompletableFuture::join);
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void testWaitingTooLongIsRejected() {
+        ExchangeFunction hung = request -> Mono.never();
+        for (var i = 0; i < 4; i++) {
+            limiter.filter(REQUEST, hung).subscribe(response -> {
+            }, e -> {
+            });
+        }
+
+        var error = assertThrows(OllamaUnavailableException.class, () -> limiter.filter(REQUEST, hung).block());
+        assertTrue(error.getMessage().contains("limit"));
+    }
+
+    @Test
+    void testFailuresShrinkTheLimitAndOpenTheCircuit() {
+        ExchangeFunction failing = request -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+
+        for (var i = 0; i < 3; i++) {
+            limiter.filter(REQUEST, failing).block();
+        }
+
+        assertEquals(1, limiter.limit());
+        assertEquals(OllamaCircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertEquals(OllamaCircuitBreaker.State.OPEN, transitions.getLast().state());
+        assertThrows(OllamaUnavailableException.class, () -> limiter.filter(REQUEST, failing).block());
+        assertTrue(circuitBreaker.shouldDefer(new RuntimeException("wrapped")));
+    }
+
+    @Test
+    void testFastSuccessesGrowTheLimit() {
+        ExchangeFunction ok = request -> Mono.delay(Duration.ofMillis(5))
+                .map(tick -> ClientResponse.create(HttpStatus.OK).build());
+
+        for (var i = 0; i < 50; i++) {
+            limiter.filter(REQUEST, ok).block();
+        }
+
+        assertTrue(limiter.limit() > 4);
+        assertTrue(limiter.limit() <= 8);
+        assertEquals(OllamaCircuitBreaker.State.CLOSED, circuitBreaker.state());
+        assertFalse(circuitBreaker.shouldDefer(new RuntimeException("parse error")));
+    }
+}
@@ -0,0 +1,157 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.config.properties.OllamaProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OllamaEndpointPoolTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void testRequestsGoToLeastLoadedEndpoint() throws Exception {
+        var release = new CountDownLatch(1);
+        var first = new AtomicInteger();
+        var second = new AtomicInteger();
+        var pool = pool(List.of(server(first, 200, release), server(second, 200, release)));
+        var client = client(pool);
+
+        var pending = new ArrayList<CompletableFuture<String>>();
+        for (var i = 0; i < 4; i++) {
+            pending.add(client.post().uri("/api/generate").retrieve().bodyToMono(String.class).toFuture());
+        }
+        waitFor(() -> first.get() + second.get() == 4);
+        release.countDown();
+        pending.forEach(CompletableFuture::join);
+
+        assertEquals(2, first.get());
+        assertEquals(2, second.get());
+    }
+
+    @Test
+    void testFailingEndpointStaysEjectedDespiteHealthCheck() throws Exception {
+        var failing = new AtomicInteger();
+        var healthy = new AtomicInteger();
+        var pool = pool(List.of(server(failing, 500, null), server(healthy, 200, null)));
+        var client = client(pool);
+
+        for (var i = 0; i < 100 && failing.get() < 2; i++) {
+            call(client);
+        }
+        assertEquals(2, failing.get());
+        assertFalse(pool.endpoints().getFirst().healthy());
+
+        for (var i = 0; i < 10; i++) {
+            call(client);
+        }
+        assertEquals(2, failing.get());
+
+        // /api/tags still answers, but the generation failures keep the endpoint out until the deadline
+        pool.probe().block();
+        assertFalse(pool.endpoints().getFirst().healthy());
+    }
+
+    @Test
+    void testEndpointEjectedByHealthCheckIsReadmittedByIt() throws Exception {
+        var tagsStatus = new AtomicInteger(500);
+        var pool = pool(List.of(server(new AtomicInteger(), 200, null, tagsStatus)));
+
+        pool.probe().block();
+        assertFalse(pool.endpoints().getFirst().healthy());
+
+        tagsStatus.set(200);
+        pool.probe().block();
+        assertTrue(pool.endpoints().getFirst().healthy());
+    }
+
+    @Test
+    void testAllEjectedEndpointsStillServeTraffic() throws Exception {
+        var calls = new AtomicInteger();
+        var pool = pool(List.of(server(calls, 500, null)));
+        var client = client(pool);
+
+        for (var i = 0; i < 4; i++) {
+            call(client);
+        }
+
+        assertEquals(4, calls.get());
+    }
+
+    private OllamaEndpointPool pool(List<String> urls) {
+        var properties = new OllamaProperties(urls.getFirst(), urls,
+                new OllamaProperties.Model("model", "embedding"),
+                new OllamaProperties.Pool(2, 60_000, 1_000, 1_000), null, null, null);
+        return new OllamaEndpointPool(properties, new SimpleMeterRegistry());
+    }
+
+    private static void call(WebClient client) {
+        client.post().uri("/api/generate").retrieve().bodyToMono(String.class)
+                .onErrorResume(e -> Mono.empty())
+                .block();
+    }
+
+    private static WebClient client(OllamaEndpointPool pool) {
+        return WebClient.builder().baseUrl(pool.primary().toString()).filter(pool).build();
+    }
+
+    private String server(AtomicInteger calls, int status, CountDownLatch release) throws IOException {
+        return server(calls, status, release, new AtomicInteger(200));
+    }
+
+    private String server(AtomicInteger calls, int status, CountDownLatch release, AtomicInteger tagsStatus)
+            throws IOException {
+        var server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/tags", exchange -> {
+            exchange.sendResponseHeaders(tagsStatus.get(), -1);
+            exchange.close();
+        });
+        server.createContext("/api/generate", exchange -> {
+            calls.incrementAndGet();
+            try {
+                if (release != null) {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            var body = "{\"response\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        servers.add(server);
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
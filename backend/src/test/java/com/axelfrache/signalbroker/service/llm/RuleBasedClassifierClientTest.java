@@ -0,0 +1,90 @@
+package com.axelfrache.signalbroker.service.llm;
+
+import com.axelfrache.signalbroker.dto.ClassificationResult;
+import com.axelfrache.signalbroker.model.enums.Category;
+import com.axelfrache.signalbroker.model.enums.ChannelType;
+import com.axelfrache.signalbroker.model.enums.Priority;
+import com.axelfrache.signalbroker.model.enums.TicketType;
+import com.axelfrache.signalbroker.model.kafka.FormattedTicketEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleBasedClassifierClientTest {
+
+    private static final ClassificationResult LLM_RESULT =
+            new ClassificationResult("From LLM", Category.BACKEND, TicketType.OTHER, Priority.P2, 0.8);
+
+    private AtomicInteger llmCalls;
+    private RuleBasedClassifierClient client;
+
+    @BeforeEach
+    void setUp() {
+        llmCalls = new AtomicInteger();
+        client = new RuleBasedClassifierClient(formatted -> {
+            llmCalls.incrementAndGet();
+            return LLM_RESULT;
+        }, 0.7, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testMatcherFindsOverlappingPatterns() {
+        var matcher = new AhoCorasickMatcher<>(Map.of("he", 1, "she", 2, "hers", 3, "his", 4));
+
+        assertEquals(Set.of(1, 2, 3), matcher.matches("ushers"));
+        assertTrue(matcher.matches("nothing here").contains(1));
+        assertTrue(matcher.matches("xyz").isEmpty());
+    }
+
+    @Test
+    void testObviousTicketsAreServedByRules() {
+        var crash = client.classify(formatted("Application plante sur iOS"));
+        assertEquals(Category.MOBILE, crash.category());
+        assertEquals(TicketType.BUG, crash.ticketType());
+        assertEquals("Application plante sur iOS", crash.subject());
+
+        var outage = client.classify(formatted("Le serveur est down depuis ce matin"));
+        assertEquals(Category.INFRA, outage.category());
+        assertEquals(Priority.P0, outage.priority());
+
+        assertEquals(0, llmCalls.get());
+        assertEquals(1.0, client.fastPathRatio());
+    }
+
+    @Test
+    void testKeywordsOnlyMatchWholeWords() {
+        var result = client.evaluate("Le build échoue");
+
+        assertNull(result);
+    }
+
+    @Test
+    void testGenericWordsDoNotVote() {
+        var result = client.evaluate("Question pour le support : la version web est low cost ? Other api high");
+
+        assertNull(result);
+    }
+
+    @Test
+    void testAmbiguousTicketsGoToTheLlm() {
+        assertEquals(LLM_RESULT, client.classify(formatted("Bonjour, j'ai une remarque")));
+        assertEquals(LLM_RESULT, client.classify(
+                formatted("Le bouton de la page renvoie une erreur 500 sur l'endpoint")));
+
+        assertEquals(2, llmCalls.get());
+        assertEquals(0.0, client.fastPathRatio());
+    }
+
+    private static FormattedTicketEvent formatted(String body) {
+        return new FormattedTicketEvent(UUID.randomUUID(), ChannelType.WHATSAPP, Instant.now(), Instant.now(),
+                body, "+33600000000", 1);
+    }
+}